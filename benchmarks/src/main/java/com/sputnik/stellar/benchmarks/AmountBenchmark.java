@@ -0,0 +1,80 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.alert.ThresholdAlerts;
+import com.sputnik.stellar.alert.ThresholdRule;
+import com.sputnik.stellar.asset.Stroops;
+import com.sputnik.stellar.filter.Direction;
+import com.sputnik.stellar.message.OperationFacts;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.stellar.sdk.AssetTypeNative;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AmountBenchmark {
+
+  private static final String AMOUNT = "1234.5678901";
+
+  private ThresholdAlerts alerts;
+  private OperationFacts facts;
+  private long operationId;
+  private long timeMillis;
+
+  @Setup
+  public void setUp() {
+    // three rules over the same payments, with thresholds never reached
+    List<ThresholdRule> rules = List.of(
+      new ThresholdRule("hour", Set.of("XLM"), Direction.INCOMING, Duration.ofHours(1), Long.MAX_VALUE),
+      new ThresholdRule("day", null, Direction.INCOMING, Duration.ofDays(1), Long.MAX_VALUE),
+      new ThresholdRule("sent", null, Direction.OUTGOING, Duration.ofDays(1), Long.MAX_VALUE));
+    alerts = new ThresholdAlerts(rules, null, message -> {
+    });
+    facts = new OperationFacts("payment", new AssetTypeNative(), AMOUNT, "GCOUNTERPARTY", true);
+    timeMillis = System.currentTimeMillis();
+  }
+
+  @TearDown
+  public void tearDown() {
+    alerts.close();
+  }
+
+  @Benchmark
+  public long parseStroops() {
+    return Stroops.parse(AMOUNT);
+  }
+
+  /**
+   * What the amounts cost parsed as before.
+   */
+  @Benchmark
+  public BigDecimal parseBigDecimal() {
+    return new BigDecimal(AMOUNT);
+  }
+
+  /**
+   * A payment every second added to the rolling totals of the rules.
+   */
+  @Benchmark
+  public void recordPayment() {
+    timeMillis += 1000;
+    alerts.record(Fixtures.ACCOUNT_ID, ++operationId, timeMillis, facts);
+  }
+}
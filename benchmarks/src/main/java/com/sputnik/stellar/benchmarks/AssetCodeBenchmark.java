@@ -0,0 +1,64 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.ClaimableLauncher;
+import com.sputnik.stellar.asset.AssetDescriptor;
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.message.PaymentOperationMessagesCreator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.stellar.sdk.Asset;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AssetCodeBenchmark {
+
+  private static final Map<String, String> ASSETS = Map.of(
+    "native", "native",
+    "alphanum4", "USDC:GBJVY34OWUI7LWLGUGYHEXPZF27SOUKPVOUULS55NGHCHLDSYQLVODR6",
+    "alphanum12", "LONGASSETCOD:GCXMTBZW6YUFEWR25KLMVPWZMZYSBESS624DMYTNCF6WV6G7M35BSRQH");
+
+  @Param({"native", "alphanum4", "alphanum12"})
+  public String assetType;
+
+  private ClaimableLauncher launcher;
+  private Asset asset;
+
+  @Setup
+  public void setUp() {
+    launcher = new ClaimableLauncher();
+    asset = Asset.create(ASSETS.get(assetType));
+  }
+
+  @Benchmark
+  public String getAssetCode() {
+    return launcher.getAssetCode(asset);
+  }
+
+  @Benchmark
+  public String getAssetName() {
+    return PaymentOperationMessagesCreator.getAssetName(asset);
+  }
+
+  /**
+   * Descriptor built from scratch on every call, what the names cost without the cache.
+   */
+  @Benchmark
+  public AssetDescriptor uncachedDescriptor() {
+    return new AssetDescriptors(1).get(asset);
+  }
+}
@@ -0,0 +1,22 @@
+package com.sputnik.stellar.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the first argument (all of them by default) reporting throughput and, through the GC
+ * profiler, allocation rate ({@code gc.alloc.rate.norm} is the number of bytes allocated per operation).
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+      .include(args.length > 0 ? args[0] : ".*")
+      .mode(Mode.Throughput)
+      .addProfiler(GCProfiler.class)
+      .build()).run();
+  }
+}
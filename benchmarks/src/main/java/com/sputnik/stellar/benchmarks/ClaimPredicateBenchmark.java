@@ -0,0 +1,82 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.ClaimableLauncher;
+import com.sputnik.stellar.claimable.ClaimPredicates;
+import com.sputnik.stellar.claimable.ClaimWindows;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.stellar.sdk.Predicate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClaimPredicateBenchmark {
+
+  @Param({"1", "4", "8", "12"})
+  public int depth;
+
+  private ClaimableLauncher launcher;
+  private Predicate predicate;
+  private ClaimWindows windows;
+  private Instant now;
+
+  @Setup
+  public void setUp() {
+    launcher = new ClaimableLauncher();
+    now = Instant.now();
+    predicate = buildTree(depth, now.getEpochSecond());
+    windows = ClaimPredicates.compile(predicate, now);
+  }
+
+  @Benchmark
+  public boolean evaluatePredicate() {
+    return launcher.evaluatePredicate(predicate, now);
+  }
+
+  @Benchmark
+  public ClaimWindows compilePredicate() {
+    return ClaimPredicates.compile(predicate, now);
+  }
+
+  @Benchmark
+  public boolean evaluateCompiledWindows() {
+    return windows.contains(now);
+  }
+
+  @Benchmark
+  public String predicateToText() {
+    return launcher.predicateToText(predicate);
+  }
+
+  /**
+   * Balanced tree alternating and/or nodes, with negated leaves on every other level, like the ones generated by wallets
+   * for vesting schedules.
+   */
+  private static Predicate buildTree(int depth, long now) {
+    if (depth == 0) {
+      return new Predicate.AbsBefore(now + TimeUnit.DAYS.toSeconds(30));
+    }
+
+    Predicate left = buildTree(depth - 1, now);
+    Predicate right = buildTree(depth - 1, now - ChronoUnit.DAYS.getDuration().getSeconds() * depth);
+    if (depth % 2 == 0) {
+      return new Predicate.And(left, new Predicate.Not(right));
+    }
+    return new Predicate.Or(left, right);
+  }
+}
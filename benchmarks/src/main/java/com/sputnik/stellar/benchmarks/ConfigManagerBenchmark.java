@@ -0,0 +1,82 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.util.ConfigManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConfigManagerBenchmark {
+
+  private File file;
+  private ConfigManager config;
+  private long counter;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = File.createTempFile("config-benchmark", ".properties");
+    config = new ConfigManager(file);
+    for (int i = 0; i < 20; i++) {
+      config.set("key." + i, "value." + i);
+    }
+    config.set("lastPagingToken", "0");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file.toPath());
+  }
+
+  @Benchmark
+  public String getFromFile() {
+    return config.get("key.10");
+  }
+
+  @Benchmark
+  public String getFromEnvironment() {
+    return config.get("PATH");
+  }
+
+  @Benchmark
+  public String getMissing() {
+    return config.get("missing.key");
+  }
+
+  @Benchmark
+  public void set() {
+    config.set("lastPagingToken", Long.toString(counter++));
+  }
+
+  @Benchmark
+  @Group("readWhileWriting")
+  @GroupThreads(3)
+  public String getWhileSetting() {
+    return config.get("key.10");
+  }
+
+  @Benchmark
+  @Group("readWhileWriting")
+  @GroupThreads(1)
+  public void setWhileGetting() {
+    config.set("lastPagingToken", Long.toString(counter++));
+  }
+}
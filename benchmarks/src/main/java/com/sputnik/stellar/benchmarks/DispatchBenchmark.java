@@ -0,0 +1,157 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.OperationMessageHandler;
+import com.sputnik.stellar.message.OperationMessageHandlerRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.stellar.sdk.responses.operations.AccountMergeOperationResponse;
+import org.stellar.sdk.responses.operations.BeginSponsoringFutureReservesOperationResponse;
+import org.stellar.sdk.responses.operations.BumpSequenceOperationResponse;
+import org.stellar.sdk.responses.operations.ChangeTrustOperationResponse;
+import org.stellar.sdk.responses.operations.ClaimClaimableBalanceOperationResponse;
+import org.stellar.sdk.responses.operations.ClawbackClaimableBalanceOperationResponse;
+import org.stellar.sdk.responses.operations.ClawbackOperationResponse;
+import org.stellar.sdk.responses.operations.CreateAccountOperationResponse;
+import org.stellar.sdk.responses.operations.CreateClaimableBalanceOperationResponse;
+import org.stellar.sdk.responses.operations.CreatePassiveSellOfferOperationResponse;
+import org.stellar.sdk.responses.operations.EndSponsoringFutureReservesOperationResponse;
+import org.stellar.sdk.responses.operations.ExtendFootprintTTLOperationResponse;
+import org.stellar.sdk.responses.operations.InflationOperationResponse;
+import org.stellar.sdk.responses.operations.InvokeHostFunctionOperationResponse;
+import org.stellar.sdk.responses.operations.LiquidityPoolDepositOperationResponse;
+import org.stellar.sdk.responses.operations.LiquidityPoolWithdrawOperationResponse;
+import org.stellar.sdk.responses.operations.ManageBuyOfferOperationResponse;
+import org.stellar.sdk.responses.operations.ManageDataOperationResponse;
+import org.stellar.sdk.responses.operations.ManageSellOfferOperationResponse;
+import org.stellar.sdk.responses.operations.OperationResponse;
+import org.stellar.sdk.responses.operations.PathPaymentBaseOperationResponse;
+import org.stellar.sdk.responses.operations.PathPaymentStrictReceiveOperationResponse;
+import org.stellar.sdk.responses.operations.PathPaymentStrictSendOperationResponse;
+import org.stellar.sdk.responses.operations.PaymentOperationResponse;
+import org.stellar.sdk.responses.operations.RestoreFootprintOperationResponse;
+import org.stellar.sdk.responses.operations.RevokeSponsorshipOperationResponse;
+import org.stellar.sdk.responses.operations.SetOptionsOperationResponse;
+import org.stellar.sdk.responses.operations.SetTrustLineFlagsOperationResponse;
+
+/**
+ * Cost of finding the message handler of an operation: the registry lookup against the instanceof chain it replaced
+ * (in the same order), from the first entry of the chain to the last one and the unknown operation fallback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DispatchBenchmark {
+
+  private static final List<Class<? extends OperationResponse>> CHAIN_ORDER = List.of(PaymentOperationResponse.class,
+    AccountMergeOperationResponse.class, ChangeTrustOperationResponse.class, CreatePassiveSellOfferOperationResponse.class,
+    InflationOperationResponse.class, ManageDataOperationResponse.class, ManageSellOfferOperationResponse.class,
+    PathPaymentStrictReceiveOperationResponse.class, PathPaymentStrictSendOperationResponse.class, SetOptionsOperationResponse.class,
+    CreateAccountOperationResponse.class, BumpSequenceOperationResponse.class, ManageBuyOfferOperationResponse.class,
+    PathPaymentBaseOperationResponse.class, BeginSponsoringFutureReservesOperationResponse.class,
+    ClaimClaimableBalanceOperationResponse.class, ClawbackClaimableBalanceOperationResponse.class, ClawbackOperationResponse.class,
+    CreateClaimableBalanceOperationResponse.class, EndSponsoringFutureReservesOperationResponse.class,
+    ExtendFootprintTTLOperationResponse.class, InvokeHostFunctionOperationResponse.class, LiquidityPoolDepositOperationResponse.class,
+    LiquidityPoolWithdrawOperationResponse.class, RestoreFootprintOperationResponse.class, RevokeSponsorshipOperationResponse.class,
+    SetTrustLineFlagsOperationResponse.class);
+
+  @Param({"payment", "set_options", "set_trust_line_flags", "allow_trust"})
+  public String operationType;
+
+  private OperationMessageHandlerRegistry registry;
+  private OperationResponse operation;
+
+  @Setup
+  public void setUp() {
+    registry = new OperationMessageHandlerRegistry((op, accountId) -> null);
+    for (Class<? extends OperationResponse> type : CHAIN_ORDER) {
+      Message message = new Message(type.getSimpleName(), "");
+      registry.register(type, (op, accountId) -> message);
+    }
+    operation = Fixtures.operations().get(operationType);
+  }
+
+  @Benchmark
+  public OperationMessageHandler<OperationResponse> registry() {
+    return registry.handlerFor(operation.getClass());
+  }
+
+  @Benchmark
+  public int instanceofChain() {
+    return chainIndex(operation);
+  }
+
+  private static int chainIndex(OperationResponse operation) {
+    if (operation instanceof PaymentOperationResponse) {
+      return 0;
+    } else if (operation instanceof AccountMergeOperationResponse) {
+      return 1;
+    } else if (operation instanceof ChangeTrustOperationResponse) {
+      return 2;
+    } else if (operation instanceof CreatePassiveSellOfferOperationResponse) {
+      return 3;
+    } else if (operation instanceof InflationOperationResponse) {
+      return 4;
+    } else if (operation instanceof ManageDataOperationResponse) {
+      return 5;
+    } else if (operation instanceof ManageSellOfferOperationResponse) {
+      return 6;
+    } else if (operation instanceof PathPaymentStrictReceiveOperationResponse) {
+      return 7;
+    } else if (operation instanceof PathPaymentStrictSendOperationResponse) {
+      return 8;
+    } else if (operation instanceof SetOptionsOperationResponse) {
+      return 9;
+    } else if (operation instanceof CreateAccountOperationResponse) {
+      return 10;
+    } else if (operation instanceof BumpSequenceOperationResponse) {
+      return 11;
+    } else if (operation instanceof ManageBuyOfferOperationResponse) {
+      return 12;
+    } else if (operation instanceof PathPaymentBaseOperationResponse) {
+      return 13;
+    } else if (operation instanceof BeginSponsoringFutureReservesOperationResponse) {
+      return 14;
+    } else if (operation instanceof ClaimClaimableBalanceOperationResponse) {
+      return 15;
+    } else if (operation instanceof ClawbackClaimableBalanceOperationResponse) {
+      return 16;
+    } else if (operation instanceof ClawbackOperationResponse) {
+      return 17;
+    } else if (operation instanceof CreateClaimableBalanceOperationResponse) {
+      return 18;
+    } else if (operation instanceof EndSponsoringFutureReservesOperationResponse) {
+      return 19;
+    } else if (operation instanceof ExtendFootprintTTLOperationResponse) {
+      return 20;
+    } else if (operation instanceof InvokeHostFunctionOperationResponse) {
+      return 21;
+    } else if (operation instanceof LiquidityPoolDepositOperationResponse) {
+      return 22;
+    } else if (operation instanceof LiquidityPoolWithdrawOperationResponse) {
+      return 23;
+    } else if (operation instanceof RestoreFootprintOperationResponse) {
+      return 24;
+    } else if (operation instanceof RevokeSponsorshipOperationResponse) {
+      return 25;
+    } else if (operation instanceof SetTrustLineFlagsOperationResponse) {
+      return 26;
+    } else {
+      return -1;
+    }
+  }
+}
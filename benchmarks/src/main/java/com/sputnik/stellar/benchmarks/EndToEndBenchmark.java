@@ -0,0 +1,134 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.horizon.HorizonPool;
+import com.sputnik.stellar.mailer.Mailer;
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.PaymentOperationMessagesCreator;
+import com.sputnik.stellar.metrics.NotifierMetrics;
+import com.sputnik.stellar.sink.NotificationDispatcher;
+import com.sputnik.stellar.sink.NotificationSink;
+import com.sputnik.stellar.sink.SmtpSink;
+import com.sputnik.stellar.stream.StreamSupervisor;
+import com.sputnik.stellar.stream.SupervisorPolicy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.mail.internet.InternetAddress;
+
+/**
+ * Events per second and latency of the whole notifier: the payments of a {@link HorizonStandIn} go through the stream
+ * supervisor, the messages creator and the notification dispatcher, and are sent as emails to a {@link SmtpStandIn}. The
+ * latency of every operation is measured from the moment it was due in the stand-in to its acceptance by the SMTP server,
+ * so the time lost reconnecting dropped streams is included.
+ * <p>
+ * Arguments: target events per second (default 2000), duration in seconds (default 30) and events sent per stream before
+ * dropping it (default 0, never).
+ */
+public class EndToEndBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int eventsPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+    long disconnectAfterEvents = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+    try (HorizonStandIn horizon = new HorizonStandIn(eventsPerSecond, disconnectAfterEvents);
+      SmtpStandIn smtpServer = new SmtpStandIn(0);
+      HorizonPool horizonPool = new HorizonPool(List.of(horizon.getUrl()), Duration.ofSeconds(30), 5, true)) {
+      Properties props = new Properties();
+      props.put("mail.smtp.auth", "false");
+      props.put("mail.smtp.starttls.enable", "false");
+      props.put("mail.smtp.host", "127.0.0.1");
+      props.put("mail.smtp.port", Integer.toString(smtpServer.getPort()));
+      Latencies latencies = new Latencies(eventsPerSecond * seconds);
+      NotificationSink smtp = new SmtpSink(new Mailer(props, "notifier@localhost", ""),
+        new InternetAddress("notifier@localhost"), new InternetAddress("recipient@localhost"));
+      NotificationDispatcher dispatcher = new NotificationDispatcher(List.of(new TimedSink(smtp, horizon, latencies)),
+        eventsPerSecond * seconds, new NotifierMetrics());
+
+      PaymentOperationMessagesCreator messagesCreator = new PaymentOperationMessagesCreator();
+      AtomicReference<String> cursor = new AtomicReference<>();
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      StreamSupervisor supervisor = new StreamSupervisor(horizonPool, Fixtures.ACCOUNT_ID, cursor::get, operation -> {
+        dispatcher.dispatch(messagesCreator.createMessage(operation, Fixtures.ACCOUNT_ID));
+        cursor.set(operation.getPagingToken());
+      }, SupervisorPolicy.DEFAULT, scheduler, (accountId, from, to) -> {
+      });
+
+      long start = System.nanoTime();
+      supervisor.start();
+      TimeUnit.SECONDS.sleep(seconds);
+      supervisor.close();
+      long due = horizon.lastDue();
+      dispatcher.close();
+      scheduler.shutdownNow();
+      double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.printf("Target %d events/sec for %d s, %d streams opened%n", eventsPerSecond, seconds,
+        horizon.getOpenedStreams());
+      System.out.printf("Due %d, sent %d (%d accepted by SMTP): %.0f events/sec%n", due, latencies.count(),
+        smtpServer.getReceivedMessages(), latencies.count() / elapsedSeconds);
+      System.out.printf("Latency ms: p50 %.1f, p99 %.1f, max %.1f%n", latencies.percentile(50) / 1e6,
+        latencies.percentile(99) / 1e6, latencies.percentile(100) / 1e6);
+    }
+  }
+
+  /**
+   * Records the latency of every message sent by the wrapped sink.
+   */
+  private record TimedSink(NotificationSink sink, HorizonStandIn horizon, Latencies latencies)
+    implements NotificationSink {
+
+    @Override
+    public String name() {
+      return sink.name();
+    }
+
+    @Override
+    public void send(Message msg) throws Exception {
+      sink.send(msg);
+      if (msg.operationId() != null) {
+        latencies.add(System.nanoTime() - horizon.dueNanos(msg.operationId()));
+      }
+    }
+
+    @Override
+    public void close() {
+      sink.close();
+    }
+  }
+
+  private static class Latencies {
+
+    private long[] nanos;
+    private int count;
+
+    Latencies(int expected) {
+      nanos = new long[Math.max(expected, 16)];
+    }
+
+    synchronized void add(long latency) {
+      if (count == nanos.length) {
+        nanos = Arrays.copyOf(nanos, count * 2);
+      }
+      nanos[count++] = latency;
+    }
+
+    synchronized int count() {
+      return count;
+    }
+
+    synchronized double percentile(double percentile) {
+      if (count == 0) {
+        return Double.NaN;
+      }
+      long[] sorted = Arrays.copyOf(nanos, count);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.max(0, Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1))];
+    }
+  }
+}
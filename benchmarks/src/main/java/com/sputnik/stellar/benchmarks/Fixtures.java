@@ -0,0 +1,52 @@
+package com.sputnik.stellar.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.stellar.sdk.responses.GsonSingleton;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Canned Horizon operation responses, one per operation type, all of them involving {@link #ACCOUNT_ID}.
+ */
+public final class Fixtures {
+
+  public static final String ACCOUNT_ID = "GAA4XF4GTOIBKB7VM32OMKMEPTTSMO2YFXSPIVFNBTQQUNMKFTD3ZLSL";
+  public static final String OPERATIONS_RESOURCE = "/operations.jsonl";
+
+  private Fixtures() {
+  }
+
+  /**
+   * @return the canned operations keyed by Horizon operation type.
+   */
+  public static Map<String, OperationResponse> operations() {
+    Map<String, OperationResponse> operations = new LinkedHashMap<>();
+    operationsJson().forEach((type, json) ->
+      operations.put(type, GsonSingleton.getInstance().fromJson(json, OperationResponse.class)));
+    return operations;
+  }
+
+  /**
+   * @return the JSON of the canned operations, as sent by Horizon, keyed by Horizon operation type.
+   */
+  public static Map<String, String> operationsJson() {
+    Map<String, String> operations = new LinkedHashMap<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+      Objects.requireNonNull(Fixtures.class.getResourceAsStream(OPERATIONS_RESOURCE)), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        operations.put(GsonSingleton.getInstance().fromJson(line, OperationResponse.class).getType(), line);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return operations;
+  }
+}
@@ -0,0 +1,96 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.horizon.HorizonPool;
+import com.sputnik.stellar.stream.StreamSupervisor;
+import com.sputnik.stellar.stream.SupervisorPolicy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Horizon endpoint selection against two local {@link HorizonStandIn}s.
+ * <p>
+ * Hedging: both stand-ins answer a few REST requests late, and the same payment pages are fetched with and without
+ * hedging, printing the latency percentiles of each. Failover: an account is streamed while the endpoint it streams from
+ * is unavailable for a while, printing the operations missed or received twice across the switch (there should be none).
+ * <p>
+ * Arguments: REST requests (default 2000) and events per second of the stream (default 200).
+ */
+public class HorizonFailoverBenchmark {
+
+  private static final SupervisorPolicy POLICY = new SupervisorPolicy(Duration.ofSeconds(2), Duration.ofMillis(100),
+    Duration.ofSeconds(1), 5, Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+  public static void main(String[] args) throws Exception {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int eventsPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    try (HorizonStandIn first = new HorizonStandIn(eventsPerSecond, 0);
+      HorizonStandIn second = new HorizonStandIn(eventsPerSecond, 0)) {
+      List<String> urls = List.of(first.getUrl(), second.getUrl());
+      first.setSlowResponses(0.03, Duration.ofMillis(300));
+      second.setSlowResponses(0.03, Duration.ofMillis(300));
+      TimeUnit.SECONDS.sleep(1);
+      for (boolean hedging : new boolean[] {false, true}) {
+        try (HorizonPool horizon = new HorizonPool(urls, Duration.ofSeconds(1), 5, hedging)) {
+          hedging(horizon, requests);
+        }
+      }
+
+      first.setSlowResponses(0, Duration.ZERO);
+      second.setSlowResponses(0, Duration.ZERO);
+      try (HorizonPool horizon = new HorizonPool(urls, Duration.ofSeconds(1), 5, true)) {
+        failover(horizon, first, second);
+      }
+    }
+  }
+
+  private static void hedging(HorizonPool horizon, int requests) {
+    long[] latencies = new long[requests];
+    for (int i = 0; i < requests; i++) {
+      long start = System.nanoTime();
+      horizon.call(server -> server.payments().forAccount(Fixtures.ACCOUNT_ID).cursor("0").limit(10).execute());
+      latencies[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(latencies);
+    System.out.printf("Hedging %s: %d requests (%d hedged), latency ms p50 %.1f, p99 %.1f, max %.1f%n",
+      horizon.getHedgedRequests() > 0 ? "on" : "off", requests, horizon.getHedgedRequests(),
+      latencies[requests / 2] / 1e6, latencies[requests * 99 / 100] / 1e6, latencies[requests - 1] / 1e6);
+  }
+
+  private static void failover(HorizonPool horizon, HorizonStandIn first, HorizonStandIn second) throws Exception {
+    long startCursor = first.lastDue();
+    AtomicReference<String> cursor = new AtomicReference<>(Long.toString(startCursor));
+    Set<Long> received = ConcurrentHashMap.newKeySet();
+    AtomicLong duplicates = new AtomicLong();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    StreamSupervisor supervisor = new StreamSupervisor(horizon, Fixtures.ACCOUNT_ID, cursor::get, operation -> {
+      if (!received.add(operation.getId())) {
+        duplicates.incrementAndGet();
+      }
+      cursor.set(operation.getPagingToken());
+    }, POLICY, scheduler, (accountId, from, to) -> System.out.printf("Stream %s -> %s%n", from, to));
+
+    supervisor.start();
+    TimeUnit.SECONDS.sleep(3);
+    HorizonStandIn down = horizon.best().getUrl().equals(first.getUrl()) ? first : second;
+    System.out.printf("%s unavailable%n", down.getUrl());
+    down.setAvailable(false);
+    TimeUnit.SECONDS.sleep(5);
+    down.setAvailable(true);
+    TimeUnit.SECONDS.sleep(3);
+    supervisor.close();
+    scheduler.shutdownNow();
+
+    long expected = Long.parseLong(cursor.get()) - startCursor;
+    System.out.printf("Failover: %d operations received, %d missed, %d duplicated, streams opened %d and %d%n",
+      received.size(), expected - received.size(), duplicates.get(), first.getOpenedStreams(), second.getOpenedStreams());
+  }
+}
@@ -0,0 +1,260 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Minimal local Horizon serving the payments of {@link Fixtures#ACCOUNT_ID}, as a stream (SSE) and as REST pages.
+ * Payments are made up from the canned {@link Fixtures} at a fixed rate: operation {@code n} (also its paging token) is
+ * due {@code n / rate} seconds after the stand-in starts, whether a client is connected or not. Streams can be dropped
+ * every some events to emulate Horizon disconnections, a share of the REST requests can be answered late, and the whole
+ * stand-in can be made unavailable (answering 503 and dropping its streams) to emulate a degraded node.
+ */
+public class HorizonStandIn implements AutoCloseable {
+
+  private static final Set<String> PAYMENT_TYPES = Set.of("create_account", "payment", "path_payment_strict_receive",
+    "path_payment_strict_send", "account_merge");
+  private static final int MAX_PAGE_SIZE = 200;
+  private static final int LEDGER_SECONDS = 5;
+
+  private final HttpServer server;
+  private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "horizon-stand-in");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final String paymentsPath;
+  private final List<String> templates;
+  private final int eventsPerSecond;
+  private final long disconnectAfterEvents;
+  private final long startNanos = System.nanoTime();
+  private final long startMillis = System.currentTimeMillis();
+  private final AtomicLong openedStreams = new AtomicLong();
+  private volatile boolean closed;
+  private volatile boolean available = true;
+  private volatile double slowShare;
+  private volatile long slowNanos;
+
+  /**
+   * @param disconnectAfterEvents events sent on a stream before dropping it, 0 to never drop them
+   */
+  public HorizonStandIn(int eventsPerSecond, long disconnectAfterEvents) throws IOException {
+    this.paymentsPath = "/accounts/" + Fixtures.ACCOUNT_ID + "/payments";
+    this.eventsPerSecond = eventsPerSecond;
+    this.disconnectAfterEvents = disconnectAfterEvents;
+    // the JSON of every payment without its identifiers and date, written for each operation
+    this.templates = Fixtures.operationsJson().entrySet().stream()
+      .filter(operation -> PAYMENT_TYPES.contains(operation.getKey()))
+      .map(operation -> {
+        JsonObject json = JsonParser.parseString(operation.getValue()).getAsJsonObject();
+        json.remove("id");
+        json.remove("paging_token");
+        json.remove("created_at");
+        return json.toString().substring(1);
+      })
+      .toList();
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+    server.setExecutor(connections);
+    server.createContext(paymentsPath, exchange -> {
+      try {
+        handle(exchange);
+      } catch (IOException e) {
+        // client gone
+      } finally {
+        exchange.close();
+      }
+    });
+    server.createContext("/", exchange -> {
+      try {
+        root(exchange);
+      } catch (IOException e) {
+        // client gone
+      } finally {
+        exchange.close();
+      }
+    });
+    server.start();
+  }
+
+  public String getUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the operation was due
+   */
+  public long dueNanos(long operationId) {
+    return startNanos + TimeUnit.SECONDS.toNanos(operationId) / eventsPerSecond;
+  }
+
+  /**
+   * @return the id of the last operation due
+   */
+  public long lastDue() {
+    return (System.nanoTime() - startNanos) * eventsPerSecond / TimeUnit.SECONDS.toNanos(1);
+  }
+
+  public long getOpenedStreams() {
+    return openedStreams.get();
+  }
+
+  /**
+   * @param available false to answer every request with a 503 and drop the open streams
+   */
+  public void setAvailable(boolean available) {
+    this.available = available;
+  }
+
+  /**
+   * Delays a random share of the REST responses.
+   *
+   * @param share between 0 (none) and 1 (all of them)
+   */
+  public void setSlowResponses(double share, Duration delay) {
+    this.slowNanos = delay.toNanos();
+    this.slowShare = share;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    server.stop(0);
+    connections.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (!available) {
+      exchange.sendResponseHeaders(503, -1);
+      return;
+    }
+
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    String cursor = Optional.ofNullable(exchange.getRequestHeaders().getFirst("Last-Event-ID")).orElse(query.get("cursor"));
+    String accept = exchange.getRequestHeaders().getFirst("Accept");
+    if (accept != null && accept.contains("text/event-stream")) {
+      stream(exchange, cursor == null || cursor.equals("now") ? lastDue() : Long.parseLong(cursor));
+    } else {
+      delayIfSlow();
+      int limit = Optional.ofNullable(query.get("limit")).map(Integer::parseInt).orElse(10);
+      page(exchange, cursor == null ? 0 : Long.parseLong(cursor), Math.min(limit, MAX_PAGE_SIZE));
+    }
+  }
+
+  private void stream(HttpExchange exchange, long after) throws IOException {
+    openedStreams.incrementAndGet();
+    exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream body = exchange.getResponseBody();
+    write(body, "retry: 1000\nevent: open\ndata: \"hello\"\n\n");
+
+    long next = after + 1;
+    long sent = 0;
+    StringBuilder events = new StringBuilder();
+    while (!closed && available) {
+      long lastDue = lastDue();
+      if (next > lastDue) {
+        LockSupport.parkNanos(dueNanos(next) - System.nanoTime());
+        continue;
+      }
+
+      events.setLength(0);
+      boolean disconnect = false;
+      for (; next <= lastDue && !disconnect; next++) {
+        events.append("id: ").append(next).append("\ndata: ").append(operation(next)).append("\n\n");
+        disconnect = disconnectAfterEvents > 0 && ++sent >= disconnectAfterEvents;
+      }
+      write(body, events);
+      if (disconnect) {
+        return;
+      }
+    }
+  }
+
+  private void root(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestURI().getPath().equals("/")) {
+      exchange.sendResponseHeaders(404, -1);
+      return;
+    }
+    if (!available) {
+      exchange.sendResponseHeaders(503, -1);
+      return;
+    }
+
+    delayIfSlow();
+    long ledger = 1 + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos) / LEDGER_SECONDS;
+    byte[] bytes = ("{\"history_latest_ledger\":" + ledger + ",\"core_latest_ledger\":" + ledger + "}")
+      .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/hal+json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private void delayIfSlow() {
+    if (slowShare > 0 && ThreadLocalRandom.current().nextDouble() < slowShare) {
+      LockSupport.parkNanos(slowNanos);
+    }
+  }
+
+  private void page(HttpExchange exchange, long after, int limit) throws IOException {
+    long last = Math.min(lastDue(), after + limit);
+    StringBuilder records = new StringBuilder();
+    for (long id = after + 1; id <= last; id++) {
+      records.append(records.isEmpty() ? "" : ",").append(operation(id));
+    }
+    String self = getUrl() + paymentsPath;
+    String response = "{\"_links\":{\"self\":{\"href\":\"" + self + "\"},\"next\":{\"href\":\"" + self + "?cursor=" + last
+      + "\"},\"prev\":{\"href\":\"" + self + "\"}},\"_embedded\":{\"records\":[" + records + "]}}";
+
+    byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/hal+json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private String operation(long id) {
+    String createdAt = Instant.ofEpochMilli(startMillis + TimeUnit.SECONDS.toMillis(id) / eventsPerSecond).toString();
+    return "{\"id\":\"" + id + "\",\"paging_token\":\"" + id + "\",\"created_at\":\"" + createdAt + "\","
+      + templates.get((int) (id % templates.size()));
+  }
+
+  private static void write(OutputStream body, CharSequence data) throws IOException {
+    body.write(data.toString().getBytes(StandardCharsets.UTF_8));
+    body.flush();
+  }
+
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        int separator = parameter.indexOf('=');
+        if (separator > 0) {
+          parameters.put(parameter.substring(0, separator),
+            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return parameters;
+  }
+}
@@ -0,0 +1,76 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.mailer.Mailer;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Messages per second sent to a local SMTP stand-in through the pooled {@link Mailer}, against a new connection per
+ * message ({@link Transport#send(Message)}, what the mailer used to do).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class MailerBenchmark {
+
+  @Param({"0", "20"})
+  public long handshakeDelayMillis;
+
+  private SmtpStandIn smtpServer;
+  private Mailer mailer;
+  private Message message;
+
+  @Setup
+  public void setUp() throws IOException, MessagingException {
+    smtpServer = new SmtpStandIn(handshakeDelayMillis);
+    Properties props = new Properties();
+    props.put("mail.smtp.auth", "false");
+    props.put("mail.smtp.starttls.enable", "false");
+    props.put("mail.smtp.host", "127.0.0.1");
+    props.put("mail.smtp.port", Integer.toString(smtpServer.getPort()));
+    mailer = new Mailer(props, "notifier@localhost", "");
+
+    message = new MimeMessage(mailer.getSession());
+    message.setSubject("Stellar payment operation.");
+    message.setFrom(new InternetAddress("notifier@localhost"));
+    message.setRecipient(Message.RecipientType.TO, new InternetAddress("recipient@localhost"));
+    message.setText("Received payment of 125.5000000 USDC");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    mailer.close();
+    smtpServer.close();
+  }
+
+  @Benchmark
+  public void pooledMailer() throws MessagingException {
+    mailer.send(message);
+  }
+
+  @Benchmark
+  public void connectionPerMessage() throws MessagingException {
+    Transport.send(message);
+  }
+}
@@ -0,0 +1,48 @@
+package com.sputnik.stellar.benchmarks;
+
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.PaymentOperationMessagesCreator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessagesCreatorBenchmark {
+
+  @Param({"create_account", "payment", "path_payment_strict_receive", "manage_sell_offer", "create_passive_sell_offer",
+    "set_options", "change_trust", "allow_trust", "account_merge", "inflation", "manage_data", "bump_sequence",
+    "manage_buy_offer", "path_payment_strict_send", "create_claimable_balance", "claim_claimable_balance",
+    "begin_sponsoring_future_reserves", "end_sponsoring_future_reserves", "revoke_sponsorship", "clawback",
+    "clawback_claimable_balance", "set_trust_line_flags", "liquidity_pool_deposit", "liquidity_pool_withdraw",
+    "invoke_host_function", "extend_footprint_ttl", "restore_footprint"})
+  public String operationType;
+
+  private PaymentOperationMessagesCreator messagesCreator;
+  private OperationResponse operation;
+
+  @Setup
+  public void setUp() {
+    messagesCreator = new PaymentOperationMessagesCreator();
+    operation = Fixtures.operations().get(operationType);
+  }
+
+  @Benchmark
+  public Message createMessage() {
+    return messagesCreator.createMessage(operation, Fixtures.ACCOUNT_ID);
+  }
+}
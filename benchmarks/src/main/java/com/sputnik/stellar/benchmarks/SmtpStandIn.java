@@ -0,0 +1,118 @@
+package com.sputnik.stellar.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Minimal local SMTP server accepting every message. The handshake delay is applied to every new connection to emulate
+ * the cost of the TLS negotiation and authentication of a real relay.
+ */
+public class SmtpStandIn implements AutoCloseable {
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "smtp-stand-in");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final long handshakeDelayMillis;
+  private final Consumer<String> messageListener;
+  private final AtomicLong receivedMessages = new AtomicLong();
+  private final AtomicLong openedConnections = new AtomicLong();
+
+  public SmtpStandIn(long handshakeDelayMillis) throws IOException {
+    this(handshakeDelayMillis, data -> {
+    });
+  }
+
+  /**
+   * @param messageListener receives the data (headers and body) of every accepted message
+   */
+  public SmtpStandIn(long handshakeDelayMillis, Consumer<String> messageListener) throws IOException {
+    this.handshakeDelayMillis = handshakeDelayMillis;
+    this.messageListener = messageListener;
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    connections.execute(this::accept);
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public long getReceivedMessages() {
+    return receivedMessages.get();
+  }
+
+  public long getOpenedConnections() {
+    return openedConnections.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    connections.shutdownNow();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        openedConnections.incrementAndGet();
+        connections.execute(() -> serve(socket));
+      } catch (IOException e) {
+        // closed
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket;
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+      OutputStream out = socket.getOutputStream()) {
+      TimeUnit.MILLISECONDS.sleep(handshakeDelayMillis);
+      reply(out, "220 localhost ESMTP stand-in");
+      String line;
+      while ((line = in.readLine()) != null) {
+        String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+        switch (command) {
+          case "EHLO", "HELO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+          case "DATA" -> {
+            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+            StringBuilder data = new StringBuilder();
+            while ((line = in.readLine()) != null && !line.equals(".")) {
+              data.append(line).append('\n');
+            }
+            receivedMessages.incrementAndGet();
+            messageListener.accept(data.toString());
+            reply(out, "250 OK queued");
+          }
+          case "QUIT" -> {
+            reply(out, "221 Bye");
+            return;
+          }
+          default -> reply(out, "250 OK");
+        }
+      }
+    } catch (IOException e) {
+      // client gone
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void reply(OutputStream out, String response) throws IOException {
+    out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+}
@@ -1,79 +1,534 @@
 package com.sputnik.stellar;
 
+import com.sputnik.stellar.alert.ThresholdAlerts;
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.asset.Stroops;
+import com.sputnik.stellar.checkpoint.CheckpointPolicy;
+import com.sputnik.stellar.checkpoint.CursorCheckpointStore;
+import com.sputnik.stellar.claimable.ClaimableBalanceScanner;
+import com.sputnik.stellar.filter.OperationFilter;
+import com.sputnik.stellar.horizon.HorizonEndpoint;
+import com.sputnik.stellar.horizon.HorizonPool;
 import com.sputnik.stellar.mailer.Mailer;
+import com.sputnik.stellar.message.DigestAggregator;
+import com.sputnik.stellar.message.MemoResolver;
 import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.OperationFacts;
 import com.sputnik.stellar.message.PaymentOperationMessagesCreator;
+import com.sputnik.stellar.message.PriorityClassifier;
+import com.sputnik.stellar.message.RenderedOperation;
+import com.sputnik.stellar.message.template.MessageTemplates;
+import com.sputnik.stellar.metrics.MetricsHttpServer;
+import com.sputnik.stellar.metrics.NotifierMetrics;
+import com.sputnik.stellar.outbox.Outbox;
+import com.sputnik.stellar.replay.OperationRecorder;
+import com.sputnik.stellar.replay.OperationReplay;
+import com.sputnik.stellar.shard.LeaseDirectory;
+import com.sputnik.stellar.shard.ShardCoordinator;
+import com.sputnik.stellar.shard.ShardListener;
+import com.sputnik.stellar.sink.JsonlFileSink;
+import com.sputnik.stellar.sink.NotificationDispatcher;
+import com.sputnik.stellar.sink.NotificationSink;
+import com.sputnik.stellar.sink.RateLimits;
+import com.sputnik.stellar.sink.SmtpSink;
+import com.sputnik.stellar.sink.WebhookSink;
+import com.sputnik.stellar.stream.PaymentsBackfill;
+import com.sputnik.stellar.stream.StreamState;
+import com.sputnik.stellar.stream.StreamSupervisor;
+import com.sputnik.stellar.stream.SupervisorPolicy;
+import com.sputnik.stellar.stream.TransactionLookup;
 import com.sputnik.stellar.util.ConfigManager;
+import com.sputnik.stellar.util.ConfigValues;
+import com.sputnik.stellar.util.ConfigManagerListener;
+import com.sputnik.stellar.util.TimerWheel;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.mail.MessagingException;
+import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
-import org.stellar.sdk.Server;
-import org.stellar.sdk.requests.EventListener;
-import org.stellar.sdk.requests.PaymentsRequestBuilder;
-import org.stellar.sdk.requests.RequestBuilder.Order;
 import org.stellar.sdk.responses.operations.OperationResponse;
 
 @Slf4j
 public class Launcher {
 
   private static final ConfigManager config = new ConfigManager(new File(System.getProperty("user.home"), ".stellar-notifier"));
-  private Mailer mailer = null;
+  private NotificationDispatcher notifications = null;
+  private SmtpSink smtpSink = null;
+  private Outbox outbox = null;
+  private Path outboxDirectory = null;
+  private CursorCheckpointStore checkpoints = null;
+  private DigestAggregator digest = null;
+  private ThresholdAlerts alerts = null;
+  private volatile OperationFilter filter = null;
+  private PaymentOperationMessagesCreator messagesCreator = null;
+  private PriorityClassifier priorities = null;
+  private final NotifierMetrics metrics = new NotifierMetrics();
+  private MetricsHttpServer metricsServer = null;
+  private TimerWheel claimTimers = null;
+  private final Map<String, StreamSupervisor> supervisors = new ConcurrentHashMap<>();
+  private final Map<String, ClaimableBalanceScanner> scanners = new ConcurrentHashMap<>();
+  private String instanceId = null;
+  private ShardCoordinator shards = null;
+  private OperationRecorder recorder = null;
 
   public static void main(String[] args) {
     new Launcher().launch();
   }
 
   private void launch() {
+    Path replayFile = Optional.ofNullable(config.get("replay.file")).map(Path::of).orElse(null);
+    List<String> monitoredAccounts = replayFile != null && config.get("replay.account") != null
+      ? List.of(config.get("replay.account"))
+      : getMonitoredAccounts();
+    if (monitoredAccounts.isEmpty()) {
+      log.error("No account configured, set AccountIds (or AccountId)");
+      return;
+    }
+
+    if (replayFile == null && config.get("shard.dir") != null) {
+      // the cursor journal and outbox of the instance are found again by its id after a restart
+      instanceId = config.get("shard.instance.id");
+      if (instanceId == null || instanceId.isBlank()) {
+        log.error("shard.instance.id must be set to a stable id, unique among the instances, when shard.dir is set");
+        return;
+      }
+      instanceId = instanceId.trim();
+    }
+    checkpoints = replayFile != null ? createReplayCheckpointStore() : createCheckpointStore();
     log.info("Launching Stellar Notifier with configuration:");
-    log.info("AccountId: {}", config.get("AccountId"));
-    log.info("lastPagingToken: {}", config.get("lastPagingToken"));
+    log.info("Accounts: {}", monitoredAccounts);
+    monitoredAccounts.forEach(accountId -> log.info("lastPagingToken [{}]: {}", accountId, getPagingToken(accountId)));
     log.info("mail.smtp.auth: {}", config.get("mail.smtp.auth"));
     log.info("mail.smtp.starttls.enable: {}", config.get("mail.smtp.starttls.enable"));
     log.info("mail.smtp.host: {}", config.get("mail.smtp.host"));
     log.info("mail.smtp.port: {}", config.get("mail.smtp.port"));
     log.info("mail.user: {}", config.get("mail.user"));
     log.info("mail.password: **********");
+    log.info("mail.pool.size: {}", config.get("mail.pool.size"));
+    log.info("notification.sinks: {}", config.get("notification.sinks"));
+    log.info("outbox.enabled: {}", config.get("outbox.enabled"));
     log.info("excluded_tokens: {}", config.get("excluded_tokens"));
+    log.info("filter.rules: {}", config.get("filter.rules"));
+    log.info("digest.enabled: {}", config.get("digest.enabled"));
+    log.info("alert.rules: {}", config.get("alert.rules"));
+    log.info("metrics.http.port: {}", config.get("metrics.http.port"));
+    log.info("stream.idle.timeout.seconds: {}", config.get("stream.idle.timeout.seconds"));
+    log.info("claimable.scan.enabled: {}", config.get("claimable.scan.enabled"));
+    log.info("asset.home.domain.enabled: {}", config.get("asset.home.domain.enabled"));
+    log.info("horizon.urls: {}", Optional.ofNullable(config.get("horizon.urls")).orElse(config.get("horizon.url")));
+    log.info("replay.file: {}", replayFile);
+    log.info("capture.dir: {}", config.get("capture.dir"));
+    log.info("shard.dir: {}, instance {}", config.get("shard.dir"), instanceId);
 
-    initMailer();
-    String monitoredAccountId = config.get("AccountId");
-    try (Server server = new Server("https://horizon.stellar.org")) {
-      PaymentOperationMessagesCreator messagesCreator = new PaymentOperationMessagesCreator(getExcludedTokens());
-
-      PaymentsRequestBuilder paymentsRequest = server.payments().forAccount(monitoredAccountId).order(Order.ASC);
-      Optional.ofNullable(config.get("lastPagingToken")).ifPresent(paymentsRequest::cursor);
-
-      paymentsRequest.stream(new EventListener<>() {
-        @Override
-        public void onEvent(OperationResponse operation) {
-          try {
-            log.info("Operation Received - Type: {}, Id: {}, SourceAccount: {}, Date: {}", operation.getType(),
-              operation.getId(), operation.getSourceAccount(), Date.from(Instant.parse(operation.getCreatedAt())));
-            sendMessage(messagesCreator.createMessage(operation, monitoredAccountId));
-            config.set("lastPagingToken", operation.getPagingToken());
-          } catch (Exception e) {
-            log.error("Error trying to send email", e);
-          }
+    try {
+      initNotifications(replayFile != null);
+      initAlerts(replayFile != null);
+      initDigest(replayFile != null);
+    } catch (MessagingException | IllegalArgumentException | UncheckedIOException e) {
+      log.error("Invalid notification configuration: {}", e.getMessage(), e);
+      checkpoints.close();
+      return;
+    }
+
+    if (replayFile != null) {
+      replay(replayFile, monitoredAccounts.get(0));
+      return;
+    }
+    initCapture();
+
+    // One Server per Horizon endpoint (and so one HTTP client and connection pool) and one messages creator shared by all
+    // the account streams.
+    try (HorizonPool horizon = HorizonPool.fromConfig(config::get)) {
+      if (Boolean.parseBoolean(config.get("asset.home.domain.enabled"))) {
+        AssetDescriptors.shared().resolveHomeDomains(
+          issuer -> horizon.call(server -> server.accounts().account(issuer).getHomeDomain()),
+          Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "home-domain-resolver");
+            thread.setDaemon(true);
+            return thread;
+          }));
+      }
+      filter = OperationFilter.fromConfig(config::get);
+      messagesCreator = new PaymentOperationMessagesCreator(new MessageTemplates(config::get),
+        new TransactionLookup(horizon, Duration.ofMinutes(5), 1000));
+      initMetrics();
+      registerHorizonGauges(horizon);
+      config.registerListener(new ConfigReloader());
+      config.watch();
+
+      SupervisorPolicy streamPolicy = getSupervisorPolicy();
+      ScheduledExecutorService streamScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stream-supervisor");
+        thread.setDaemon(true);
+        return thread;
+      });
+      PaymentsBackfill backfill = new PaymentsBackfill(horizon, this::render);
+      if (Boolean.parseBoolean(config.get("claimable.scan.enabled"))) {
+        // the timers only hand the alerts over to the scanner threads
+        claimTimers = new TimerWheel(Duration.ofSeconds(1), 512, Runnable::run);
+      }
+      Consumer<String> startAccount = accountId -> {
+        supervisors.put(accountId, monitorAccount(horizon, backfill, accountId, streamPolicy, streamScheduler));
+        if (claimTimers != null) {
+          scanners.put(accountId, startClaimableBalanceScanner(horizon, accountId));
         }
+      };
+      if (instanceId != null) {
+        shards = startSharding(monitoredAccounts, startAccount);
+      } else {
+        monitoredAccounts.forEach(startAccount);
+      }
 
-        @Override
-        public void onFailure(Optional<Throwable> error, Optional<Integer> responseCode) {
-          log.warn("{},{}", error.orElse(null), responseCode.orElse(null));
+      CountDownLatch stopped = new CountDownLatch(1);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        config.close();
+        if (shards != null) {
+          // hands the accounts over with their final cursors
+          shards.close();
         }
-      });
+        List.copyOf(supervisors.keySet()).forEach(this::stopAccount);
+        backfill.close();
+        if (recorder != null) {
+          recorder.close();
+        }
+        if (claimTimers != null) {
+          claimTimers.close();
+        }
+        streamScheduler.shutdownNow();
+        if (alerts != null) {
+          alerts.close();
+        }
+        if (digest != null) {
+          digest.close();
+        }
+        notifications.close();
+        if (outbox != null) {
+          outbox.close();
+        }
+        checkpoints.close();
+        log.info("Filter rule hits: {}", filter.getHitCounts());
+        if (metricsServer != null) {
+          metricsServer.close();
+        }
+        stopped.countDown();
+      }));
+      awaitShutdown(stopped);
+    }
+  }
+
+  private void replay(Path file, String accountId) {
+    filter = OperationFilter.fromConfig(config::get);
+    // the replay doesn't use the network, memos missing in the recording are not looked up
+    messagesCreator = new PaymentOperationMessagesCreator(new MessageTemplates(config::get), MemoResolver.NONE);
+    initMetrics();
+
+    OperationReplay.Pace pace = "recorded".equalsIgnoreCase(config.get("replay.pace"))
+      ? OperationReplay.Pace.RECORDED
+      : OperationReplay.Pace.FAST;
+    log.info("Replaying {} as account {} at {} pace", file, accountId, pace);
+    long start = System.nanoTime();
+    try {
+      OperationReplay.ReplayStats stats = new OperationReplay(file, pace)
+        .replay(operation -> deliver(accountId, operation, render(accountId, operation)));
+      log.info("Replayed {} operations ({} unreadable lines skipped) in {} ms, {} events/sec", stats.operations(),
+        stats.skipped(), stats.elapsed().toMillis(), stats.eventsPerSecond());
+    } catch (IOException e) {
+      log.error("Error replaying {}: {}", file, e.getMessage(), e);
+    } finally {
+      if (alerts != null) {
+        alerts.close();
+      }
+      if (digest != null) {
+        digest.close();
+      }
+      notifications.close();
+      if (outbox != null) {
+        outbox.close();
+        deleteReplayOutbox();
+      }
+      checkpoints.close();
+      log.info("Replay notifications sent after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      log.info("Filter rule hits: {}", filter.getHitCounts());
+      if (metricsServer != null) {
+        metricsServer.close();
+      }
+    }
+  }
+
+  private void initCapture() {
+    String directory = config.get("capture.dir");
+    if (directory != null) {
+      try {
+        recorder = new OperationRecorder(Path.of(directory));
+      } catch (IOException e) {
+        log.error("Error creating capture directory {}, operations won't be captured: {}", directory, e.getMessage());
+      }
+    }
+  }
+
+  private StreamSupervisor monitorAccount(HorizonPool horizon, PaymentsBackfill backfill, String monitoredAccountId,
+    SupervisorPolicy policy, ScheduledExecutorService scheduler) {
+    // the catch-up runs on the thread of the account, so the other accounts start meanwhile
+    StreamSupervisor supervisor = new StreamSupervisor(horizon, monitoredAccountId, () -> getPagingToken(monitoredAccountId),
+      operation -> {
+        received(monitoredAccountId, operation);
+        deliver(monitoredAccountId, operation, render(monitoredAccountId, operation));
+      },
+      policy, scheduler, this::streamStateChanged,
+      (cursor, cancelled) -> backfill.catchUp(monitoredAccountId, cursor, (accountId, operation, rendered) -> {
+        received(accountId, operation);
+        deliver(accountId, operation, rendered);
+      }, cancelled));
+    metrics.gauge("stream_state", "Stream state of each account (0 connecting, 1 streaming, 2 stalled, 3 backoff, 4 polling, 5 stopped)",
+      () -> Optional.ofNullable(supervisors.get(monitoredAccountId)).map(StreamSupervisor::getState).orElse(StreamState.STOPPED)
+        .ordinal(), "account", monitoredAccountId);
+    supervisor.start();
+
+    return supervisor;
+  }
+
+  private void received(String accountId, OperationResponse operation) {
+    metrics.eventReceived(operation);
+    log.info("Operation Received - Account: {}, Type: {}, Id: {}, SourceAccount: {}, Date: {}", accountId,
+      operation.getType(), operation.getId(), operation.getSourceAccount(), Date.from(Instant.parse(operation.getCreatedAt())));
+  }
+
+  private void streamStateChanged(String accountId, StreamState from, StreamState to) {
+    log.info("[{}] Stream {} -> {}", accountId, from, to);
+    if (to == StreamState.CONNECTING && from != StreamState.STOPPED) {
+      metrics.streamReconnect(accountId);
+    }
+  }
+
+  private SupervisorPolicy getSupervisorPolicy() {
+    SupervisorPolicy defaults = SupervisorPolicy.DEFAULT;
+    return new SupervisorPolicy(
+      Optional.ofNullable(config.getInt("stream.idle.timeout.seconds")).map(Duration::ofSeconds).orElse(defaults.idleTimeout()),
+      Optional.ofNullable(config.getInt("stream.backoff.initial.millis")).map(Duration::ofMillis).orElse(defaults.initialBackoff()),
+      Optional.ofNullable(config.getInt("stream.backoff.max.seconds")).map(Duration::ofSeconds).orElse(defaults.maxBackoff()),
+      Optional.ofNullable(config.getInt("stream.failures.before.polling")).orElse(defaults.failuresBeforePolling()),
+      Optional.ofNullable(config.getInt("stream.poll.min.seconds")).map(Duration::ofSeconds).orElse(defaults.minPollInterval()),
+      Optional.ofNullable(config.getInt("stream.poll.max.seconds")).map(Duration::ofSeconds).orElse(defaults.maxPollInterval()),
+      Optional.ofNullable(config.getInt("stream.retry.minutes")).map(Duration::ofMinutes).orElse(defaults.streamRetryInterval()));
+  }
+
+  private ClaimableBalanceScanner startClaimableBalanceScanner(HorizonPool horizon, String accountId) {
+    Duration interval = Duration.ofSeconds(Optional.ofNullable(config.getInt("claimable.scan.interval.seconds")).orElse(300));
+    Duration reconcileInterval = Duration.ofMinutes(Optional.ofNullable(config.getInt("claimable.reconcile.minutes")).orElse(60));
+    Duration expiryWarning = Duration.ofHours(Optional.ofNullable(config.getInt("claimable.expiry.warning.hours")).orElse(24));
+    Set<String> excludedAssets = ConfigValues.parseSet(config.get("claimable.excluded.assets"));
+
+    ClaimableBalanceScanner scanner = new ClaimableBalanceScanner(horizon, accountId, reconcileInterval, expiryWarning,
+      excludedAssets, notifications::dispatch, claimTimers);
+    scanner.start(interval);
+    return scanner;
+  }
+
+  private void stopAccount(String accountId) {
+    Optional.ofNullable(supervisors.remove(accountId)).ifPresent(StreamSupervisor::close);
+    Optional.ofNullable(scanners.remove(accountId)).ifPresent(ClaimableBalanceScanner::close);
+  }
+
+  private ShardCoordinator startSharding(List<String> accountIds, Consumer<String> startAccount) {
+    Duration heartbeat = Duration.ofSeconds(Optional.ofNullable(config.getInt("shard.heartbeat.seconds")).orElse(10));
+    Duration leaseTtl = Duration.ofSeconds(Optional.ofNullable(config.getInt("shard.lease.seconds")).orElse(30));
+    if (heartbeat.multipliedBy(2).compareTo(leaseTtl) > 0) {
+      log.warn("shard.heartbeat.seconds is over half of shard.lease.seconds, leases will be lost before being renewed");
+    }
+    LeaseDirectory leases = new LeaseDirectory(Path.of(config.get("shard.dir")), instanceId, leaseTtl);
+    ShardCoordinator coordinator = new ShardCoordinator(leases, accountIds, this::getPagingToken, new ShardListener() {
+      @Override
+      public void accountAcquired(String accountId, String cursor) {
+        resumeFrom(accountId, cursor);
+        startAccount.accept(accountId);
+      }
+
+      @Override
+      public void accountReleased(String accountId) {
+        stopAccount(accountId);
+      }
+    }, heartbeat);
+    metrics.gauge("shard_accounts", "Accounts monitored by this instance", () -> coordinator.getOwnedAccounts().size());
+    coordinator.start();
+
+    return coordinator;
+  }
+
+  /**
+   * Continues from the cursor left by the previous owner of the account, unless this instance has a later one.
+   */
+  private void resumeFrom(String accountId, String leaseCursor) {
+    String localCursor = getPagingToken(accountId);
+    if (leaseCursor == null || leaseCursor.equals(localCursor)) {
+      return;
+    }
+    try {
+      if (localCursor != null && Long.parseLong(localCursor) > Long.parseLong(leaseCursor)) {
+        return;
+      }
+    } catch (NumberFormatException e) {
+      // not comparable, the lease is the latest record of the account
+    }
+    checkpoints.record(accountId, leaseCursor);
+  }
+
+  /**
+   * @return the file or directory in the home directory, one per instance when sharding
+   */
+  private Path localStatePath(String name) {
+    return Path.of(System.getProperty("user.home"), instanceId != null ? name + "." + instanceId : name);
+  }
+
+  private void awaitShutdown(CountDownLatch shutdown) {
+    try {
+      shutdown.await();
+    } catch (InterruptedException e) {
+      log.error(e.getMessage(), e);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private List<String> getMonitoredAccounts() {
+    String accountIds = Optional.ofNullable(config.get("AccountIds")).orElse(config.get("AccountId"));
+    if (accountIds == null) {
+      return List.of();
+    }
+
+    return Arrays.stream(accountIds.split(","))
+      .map(String::trim)
+      .filter(accountId -> !accountId.isEmpty())
+      .distinct()
+      .toList();
+  }
 
+  private String getPagingToken(String accountId) {
+    String pagingToken = checkpoints.get(accountId);
+    if (pagingToken == null) {
+      // cursors saved in the configuration by previous versions
+      pagingToken = config.get("lastPagingToken." + accountId);
+    }
+    if (pagingToken == null && accountId.equals(config.get("AccountId"))) {
+      pagingToken = config.get("lastPagingToken");
     }
+
+    return pagingToken;
   }
 
-  private void initMailer() {
+  private CursorCheckpointStore createCheckpointStore() {
+    Path journal = Optional.ofNullable(config.get("checkpoint.file"))
+      .map(Path::of)
+      .orElse(localStatePath(".stellar-notifier.cursors"));
+    CheckpointPolicy defaults = CheckpointPolicy.DEFAULT;
+    CheckpointPolicy policy = new CheckpointPolicy(
+      Optional.ofNullable(config.getInt("checkpoint.flush.events")).orElse(defaults.flushEvents()),
+      Optional.ofNullable(config.getInt("checkpoint.flush.millis")).map(Integer::longValue).orElse(defaults.flushMillis()),
+      Optional.ofNullable(config.get("checkpoint.fsync")).map(Boolean::parseBoolean).orElse(defaults.fsync()),
+      Optional.ofNullable(config.getInt("checkpoint.compact.entries")).orElse(defaults.compactEntries()),
+      Optional.ofNullable(config.getInt("checkpoint.seen.operations")).orElse(defaults.seenOperations()));
+
+    return new CursorCheckpointStore(journal, policy);
+  }
+
+  private CursorCheckpointStore createReplayCheckpointStore() {
+    // replayed operations must not move the cursors of the live streams, nor be taken as already notified by them
+    try {
+      Path journal = Files.createTempFile("stellar-notifier-replay", ".cursors");
+      journal.toFile().deleteOnExit();
+      journal.resolveSibling(journal.getFileName() + ".seen").toFile().deleteOnExit();
+      return new CursorCheckpointStore(journal, CheckpointPolicy.DEFAULT);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error creating replay cursor journal", e);
+    }
+  }
+
+  private void initNotifications(boolean replaying) throws MessagingException {
+    List<NotificationSink> sinks = new ArrayList<>();
+    for (String sinkName : Optional.ofNullable(config.get("notification.sinks")).orElse("smtp").split(",")) {
+      switch (sinkName.trim()) {
+        case "smtp" -> {
+          smtpSink = new SmtpSink(createMailer(), new InternetAddress(config.get("mail.user")),
+            new InternetAddress(config.get("mail.recipient")));
+          sinks.add(smtpSink);
+        }
+        case "webhook" -> sinks.add(new WebhookSink(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build(),
+          Optional.ofNullable(config.get("notification.webhook.url")).map(URI::create)
+            .orElseThrow(() -> new IllegalArgumentException("notification.webhook.url is not set")),
+          Duration.ofSeconds(Optional.ofNullable(config.getInt("notification.webhook.timeout.seconds")).orElse(10)),
+          config.get("notification.webhook.authorization")));
+        case "file" -> sinks.add(new JsonlFileSink(Optional.ofNullable(config.get("notification.file"))
+          .map(Path::of)
+          .orElse(Path.of(System.getProperty("user.home"), ".stellar-notifier.notifications.jsonl"))));
+        default -> throw new IllegalArgumentException("Unknown notification sink: " + sinkName);
+      }
+    }
+
+    int queueCapacity = Optional.ofNullable(config.getInt("notification.queue.capacity")).orElse(1000);
+    RateLimits rateLimits = new RateLimits(
+      Optional.ofNullable(config.getInt("notification.rate.per.minute")).orElse(0),
+      Optional.ofNullable(config.getInt("notification.recipient.rate.per.minute")).orElse(0),
+      Optional.ofNullable(config.getInt("notification.rate.burst")).orElse(10));
+    priorities = new PriorityClassifier(
+      Optional.ofNullable(config.get("notification.priority.high.amount")).map(Stroops::parse).orElse(null),
+      Optional.ofNullable(config.get("notification.priority.low.amount")).map(Stroops::parse).orElse(null));
+    if (!"false".equalsIgnoreCase(config.get("outbox.enabled"))) {
+      outboxDirectory = replaying ? createReplayOutboxDirectory() : Optional.ofNullable(config.get("outbox.dir"))
+        .map(Path::of)
+        .orElse(localStatePath(".stellar-notifier.outbox"));
+      outbox = openOutbox(outboxDirectory, sinks.size(), replaying);
+    }
+    notifications = new NotificationDispatcher(sinks, queueCapacity, rateLimits, outbox, metrics);
+  }
+
+  private Outbox openOutbox(Path directory, int sinks, boolean replaying) {
+    int segmentBytes = Optional.ofNullable(config.getInt("outbox.segment.bytes")).orElse(4 * 1024 * 1024);
+    boolean fsync = !replaying && Optional.ofNullable(config.get("outbox.fsync")).map(Boolean::parseBoolean).orElse(true);
+    return new Outbox(directory, segmentBytes, fsync, sinks);
+  }
+
+  private Path createReplayOutboxDirectory() {
+    // the live outbox must not be mapped by two processes, nor left with replayed entries to send again
+    try {
+      return Files.createTempDirectory("stellar-notifier-replay-outbox");
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error creating replay outbox", e);
+    }
+  }
+
+  private void deleteReplayOutbox() {
+    try (Stream<Path> files = Files.walk(outboxDirectory)) {
+      for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.deleteIfExists(path);
+      }
+    } catch (IOException e) {
+      log.warn("Error deleting replay outbox {}: {}", outboxDirectory, e.getMessage());
+    }
+  }
+
+  private Mailer createMailer() throws MessagingException {
     Properties props = new Properties();
     props.put("mail.smtp.auth", config.get("mail.smtp.auth"));
     props.put("mail.smtp.starttls.enable", config.get("mail.smtp.starttls.enable"));
@@ -81,33 +536,113 @@ public class Launcher {
     props.put("mail.smtp.port", config.get("mail.smtp.port"));
     String username = config.get("mail.user");
     String password = config.get("mail.password");
+    int poolSize = Optional.ofNullable(config.getInt("mail.pool.size")).orElse(Mailer.DEFAULT_POOL_SIZE);
+    long maxIdleMillis = Optional.ofNullable(config.getInt("mail.pool.idle.timeout.seconds"))
+      .map(seconds -> TimeUnit.SECONDS.toMillis(seconds))
+      .orElse(Mailer.DEFAULT_MAX_IDLE_MILLIS);
+    int maxMessagesPerConnection = Optional.ofNullable(config.getInt("mail.pool.max.messages"))
+      .orElse(Mailer.DEFAULT_MAX_MESSAGES_PER_CONNECTION);
 
-    mailer = new Mailer(props, username, password);
+    return new Mailer(props, username, password, poolSize, maxIdleMillis, maxMessagesPerConnection);
   }
 
-  private void sendMessage(Message msg) {
-    if (msg != null) {
-      log.info("Sending message");
-      javax.mail.Message message = new MimeMessage(mailer.getSession());
+  private void initMetrics() {
+    metrics.checkpointAge(checkpoints::getLastFlushMillis);
+    if (outbox != null) {
+      metrics.gauge("outbox_pending", "Notifications in the outbox not sent yet by all the sinks", outbox::pendingCount);
+    }
+    registerFilterGauges();
+    if (!"false".equalsIgnoreCase(config.get("metrics.jmx.enabled"))) {
+      metrics.registerJmx();
+    }
+
+    Integer port = config.getInt("metrics.http.port");
+    if (port != null) {
       try {
-        message.setSubject(msg.subject());
-        message.setFrom(new InternetAddress(config.get("mail.user")));
-        message.setRecipient(javax.mail.Message.RecipientType.TO, new InternetAddress(config.get("mail.recipient")));
-        message.setText(msg.body());
-        mailer.send(message);
-      } catch (MessagingException e) {
-        log.error(e.getMessage(), e);
+        metricsServer = metrics.startHttpServer(port);
+      } catch (IOException e) {
+        log.error("Error starting metrics server on port {}: {}", port, e.getMessage(), e);
       }
     }
   }
 
-  private List<String> getExcludedTokens() {
-    List<String> excludedTokens = List.of();
-    String excludedTokensText = config.get("excluded_tokens");
-    if (excludedTokensText != null) {
-      excludedTokens = List.of(excludedTokensText.split(","));
+  private void registerHorizonGauges(HorizonPool horizon) {
+    for (HorizonEndpoint endpoint : horizon.getEndpoints()) {
+      metrics.gauge("horizon_usable", "Whether each Horizon endpoint is healthy and up to date (1) or avoided (0)",
+        () -> horizon.isUsable(endpoint) ? 1 : 0, "endpoint", endpoint.getUrl());
+      metrics.gauge("horizon_latency_seconds", "Smoothed latency of the requests to each Horizon endpoint",
+        () -> endpoint.averageNanos() / 1e9, "endpoint", endpoint.getUrl());
+    }
+    metrics.gauge("horizon_hedged_requests", "REST requests also sent to a second Horizon endpoint for being slow",
+      horizon::getHedgedRequests);
+  }
+
+  private void registerFilterGauges() {
+    // the gauges read the current filter, a rule removed by a reload reports 0
+    filter.getHitCounts().keySet().forEach(rule -> metrics.gauge("filter_hits", "Operations excluded by each filter rule",
+      () -> filter.getHitCounts().getOrDefault(rule, 0L), "rule", rule));
+  }
+
+  private void initDigest(boolean replaying) {
+    if (Boolean.parseBoolean(config.get("digest.enabled"))) {
+      // the buffered messages are journaled before their cursors are saved
+      Outbox journal = outbox != null ? openOutbox(outboxDirectory.resolve("digest"), 1, replaying) : null;
+      digest = DigestAggregator.fromConfig(config::get, notifications::dispatch, journal);
+    }
+  }
+
+  private void initAlerts(boolean replaying) {
+    if (config.get("alert.rules") != null) {
+      // replayed operations aren't added to the saved totals of the live streams
+      Path stateFile = replaying ? null : Optional.ofNullable(config.get("alert.state.file"))
+        .map(Path::of)
+        .orElse(localStatePath(".stellar-notifier.alerts"));
+      alerts = ThresholdAlerts.fromConfig(config::get, stateFile, this::dispatch);
+    }
+  }
+
+  private RenderedOperation render(String accountId, OperationResponse operation) {
+    long start = System.nanoTime();
+    try {
+      // extracted once, for the filter, the message and the alerts
+      OperationFacts facts = OperationFacts.of(operation, accountId);
+      if (checkpoints.isDelivered(accountId, operation.getId())) {
+        log.info("Operation {} already notified, skipping it", operation.getId());
+        metrics.duplicateDropped();
+        return new RenderedOperation(null, facts);
+      }
+      if (filter.isExcluded(facts)) {
+        log.debug("Operation {} excluded by filter", operation.getId());
+        return new RenderedOperation(null, facts);
+      }
+      Message message = messagesCreator.createMessage(operation, accountId, facts);
+      return new RenderedOperation(message != null ? message.withPriority(priorities.classify(operation, facts)) : null,
+        facts);
+    } finally {
+      metrics.renderTime().observeNanos(System.nanoTime() - start);
+    }
+  }
+
+  private void deliver(String accountId, OperationResponse operation, RenderedOperation rendered) {
+    if (recorder != null) {
+      recorder.record(accountId, operation);
+    }
+    dispatch(rendered.message());
+    if (alerts != null) {
+      // filtered operations count too, the alerts skip the ones already counted
+      alerts.record(accountId, operation.getId(), Instant.parse(operation.getCreatedAt()).toEpochMilli(), rendered.facts());
+    }
+    checkpoints.record(accountId, operation.getId(), operation.getPagingToken());
+  }
+
+  private void dispatch(Message msg) {
+    if (msg != null) {
+      if (digest != null) {
+        digest.add(msg);
+      } else {
+        notifications.dispatch(msg);
+      }
     }
-    return excludedTokens;
   }
 
   private void waitAndThen(TimeUnit timeUnit, long amount, Runnable runnable) {
@@ -120,4 +655,48 @@ public class Launcher {
 
     runnable.run();
   }
+
+  /**
+   * Applies the filter and recipient changes of the configuration file without restarting the streams.
+   */
+  private class ConfigReloader implements ConfigManagerListener {
+
+    @Override
+    public void registeredKey(String key, String existingValue, String defaultValue) {
+      // keys are only registered at startup
+    }
+
+    @Override
+    public void unregisteredKey(String key, String existingValue) {
+      configChanged(key);
+    }
+
+    @Override
+    public void updatedValue(String key, String oldValue, String newValue) {
+      configChanged(key);
+    }
+
+    private void configChanged(String key) {
+      if (key.startsWith("filter.") || key.equals(OperationFilter.EXCLUDED_TOKENS_RULE)) {
+        try {
+          filter = OperationFilter.fromConfig(config::get);
+          registerFilterGauges();
+          log.info("Filter rules reloaded after {} changed", key);
+        } catch (IllegalArgumentException e) {
+          log.error("Invalid filter configuration after {} changed, keeping the previous rules: {}", key, e.getMessage());
+        }
+      } else if (key.equals("mail.recipient") && smtpSink != null) {
+        String recipient = config.get(key);
+        try {
+          if (recipient == null) {
+            throw new AddressException("mail.recipient is not set");
+          }
+          smtpSink.setRecipient(new InternetAddress(recipient));
+          log.info("Notification recipient changed to {}", recipient);
+        } catch (AddressException e) {
+          log.error("Invalid mail.recipient {}, keeping the previous recipient: {}", recipient, e.getMessage());
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,118 @@
+package com.sputnik.stellar.alert;
+
+import com.sputnik.stellar.asset.Stroops;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Total amount and number of the payments of the last window, kept in a ring of time buckets: a bucket leaves the total
+ * as a whole when the window moves past it, so the window is exact to a bucket. Time only moves forward with the
+ * payments added, late payments are added to their own bucket while it's still in the window.
+ */
+class RollingSum {
+
+  private static final long NO_BUCKET = Long.MIN_VALUE;
+
+  private final long bucketMillis;
+  private final long[] amounts;
+  private final int[] counts;
+  /**
+   * Absolute index (time divided by the bucket width) of the newest bucket.
+   */
+  private long head = NO_BUCKET;
+  private long total;
+  private int count;
+  private boolean alerted;
+
+  RollingSum(long windowMillis, int buckets) {
+    this.bucketMillis = Math.max(1, windowMillis / buckets);
+    this.amounts = new long[buckets];
+    this.counts = new int[buckets];
+  }
+
+  void add(long timeMillis, long stroops) {
+    long bucket = Math.floorDiv(timeMillis, bucketMillis);
+    advance(bucket);
+    if (bucket <= head - amounts.length) {
+      return;
+    }
+
+    int slot = (int) Math.floorMod(bucket, (long) amounts.length);
+    amounts[slot] = Stroops.add(amounts[slot], stroops);
+    counts[slot]++;
+    total = Stroops.add(total, stroops);
+    count++;
+  }
+
+  long total() {
+    return total;
+  }
+
+  int count() {
+    return count;
+  }
+
+  /**
+   * @return true if the total was over the threshold after the previous payment
+   */
+  boolean isAlerted() {
+    return alerted;
+  }
+
+  void setAlerted(boolean alerted) {
+    this.alerted = alerted;
+  }
+
+  void writeTo(DataOutput out) throws IOException {
+    out.writeLong(head);
+    out.writeBoolean(alerted);
+    for (int slot = 0; slot < amounts.length; slot++) {
+      out.writeLong(amounts[slot]);
+      out.writeInt(counts[slot]);
+    }
+  }
+
+  void readFrom(DataInput in) throws IOException {
+    head = in.readLong();
+    alerted = in.readBoolean();
+    total = 0;
+    count = 0;
+    for (int slot = 0; slot < amounts.length; slot++) {
+      amounts[slot] = in.readLong();
+      counts[slot] = in.readInt();
+      total = Stroops.add(total, amounts[slot]);
+      count += counts[slot];
+    }
+  }
+
+  /**
+   * Moves the newest bucket forward to the given one, emptying the buckets that leave the window.
+   */
+  private void advance(long bucket) {
+    if (head == NO_BUCKET) {
+      head = bucket;
+      return;
+    }
+
+    long expired = Math.min(bucket - head, amounts.length);
+    // a saturated total isn't the sum of the buckets anymore, it's added again from the ones left
+    boolean saturated = total == Long.MAX_VALUE;
+    for (long n = 1; n <= expired; n++) {
+      int slot = (int) Math.floorMod(head + n, (long) amounts.length);
+      total -= amounts[slot];
+      count -= counts[slot];
+      amounts[slot] = 0;
+      counts[slot] = 0;
+    }
+    if (saturated && expired > 0) {
+      total = 0;
+      for (long amount : amounts) {
+        total = Stroops.add(total, amount);
+      }
+    }
+    if (bucket > head) {
+      head = bucket;
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package com.sputnik.stellar.alert;
+
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.asset.Stroops;
+import com.sputnik.stellar.filter.Direction;
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.OperationFacts;
+import com.sputnik.stellar.message.Priority;
+import com.sputnik.stellar.util.ConfigValues;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the amounts moved by every account, per asset, over the window of each {@link ThresholdRule}, and sends a high
+ * priority alert when a payment takes a total to the threshold of its rule. The rule alerts again once a later payment
+ * finds the total back under the threshold and another one takes it over.
+ * <p>
+ * Rules are configured listing their names in {@code alert.rules} and their conditions in {@code alert.rule.<name>.amount},
+ * {@code .assets} (comma separated list), {@code .direction} (incoming, the default, or outgoing) and
+ * {@code .window.minutes} (a day by default).
+ * <p>
+ * The totals are saved every minute and on close, with the last operation counted of each account, and loaded on start:
+ * operations notified again after a restart aren't counted twice, and the payments of the minute before a crash may be
+ * missing from the totals.
+ */
+@Slf4j
+public class ThresholdAlerts implements AutoCloseable {
+
+  private static final int BUCKETS = 120;
+  private static final int FORMAT_VERSION = 1;
+  private static final long SAVE_SECONDS = 60;
+
+  private final List<ThresholdRule> rules;
+  private final Path stateFile;
+  private final Consumer<Message> delivery;
+  private final Map<String, AccountSums> accounts = new HashMap<>();
+  private final ScheduledExecutorService scheduler;
+  private boolean changed;
+
+  /**
+   * @param stateFile where the totals are saved, null to not save them
+   */
+  public ThresholdAlerts(List<ThresholdRule> rules, Path stateFile, Consumer<Message> delivery) {
+    this.rules = List.copyOf(rules);
+    this.stateFile = stateFile;
+    this.delivery = delivery;
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "alert-state");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (stateFile != null) {
+      load();
+      scheduler.scheduleWithFixedDelay(this::saveIfChanged, SAVE_SECONDS, SAVE_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  public static ThresholdAlerts fromConfig(UnaryOperator<String> config, Path stateFile, Consumer<Message> delivery) {
+    List<ThresholdRule> rules = new ArrayList<>();
+    for (String name : ConfigValues.parseSet(config.apply("alert.rules"))) {
+      String prefix = "alert.rule." + name + ".";
+      ThresholdRule rule = new ThresholdRule(name,
+        ConfigValues.parseSet(config.apply(prefix + "assets")),
+        Optional.ofNullable(config.apply(prefix + "direction"))
+          .map(direction -> Direction.valueOf(direction.trim().toUpperCase(Locale.ROOT)))
+          .orElse(Direction.INCOMING),
+        Duration.ofMinutes(Optional.ofNullable(config.apply(prefix + "window.minutes")).map(String::trim).map(Long::parseLong)
+          .orElse(TimeUnit.DAYS.toMinutes(1))),
+        Optional.ofNullable(config.apply(prefix + "amount")).map(String::trim).map(Stroops::parse)
+          .orElseThrow(() -> new IllegalArgumentException(prefix + "amount is not set")));
+      log.info("Alert rule {}: {}", name, rule);
+      rules.add(rule);
+    }
+
+    return new ThresholdAlerts(rules, stateFile, delivery);
+  }
+
+  /**
+   * Adds a notified operation to the totals of the rules it matches. The operations of an account must be recorded in
+   * order.
+   *
+   * @param timeMillis when the operation was applied to the ledger
+   */
+  public void record(String accountId, long operationId, long timeMillis, OperationFacts facts) {
+    if (facts.asset() == null || !facts.hasAmount()) {
+      return;
+    }
+
+    List<Message> alerts = null;
+    synchronized (this) {
+      AccountSums account = accounts.get(accountId);
+      if (account == null) {
+        account = new AccountSums(rules.size());
+        accounts.put(accountId, account);
+      }
+      if (operationId <= account.lastOperationId) {
+        // counted before a restart
+        return;
+      }
+      account.lastOperationId = operationId;
+      changed = true;
+
+      String asset = null;
+      for (int i = 0; i < rules.size(); i++) {
+        ThresholdRule rule = rules.get(i);
+        if (!rule.matches(facts)) {
+          continue;
+        }
+        if (asset == null) {
+          asset = AssetDescriptors.of(facts.asset()).name();
+        }
+        RollingSum sum = account.sums.get(i).get(asset);
+        if (sum == null) {
+          sum = new RollingSum(rule.window().toMillis(), BUCKETS);
+          account.sums.get(i).put(asset, sum);
+        }
+
+        sum.add(timeMillis, facts.stroops());
+        boolean reached = sum.total() >= rule.amount();
+        if (reached && !sum.isAlerted()) {
+          alerts = alerts != null ? alerts : new ArrayList<>();
+          alerts.add(toAlert(rule, accountId, asset, sum));
+        }
+        sum.setAlerted(reached);
+      }
+    }
+
+    if (alerts != null) {
+      alerts.forEach(delivery);
+    }
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    if (stateFile != null) {
+      saveIfChanged();
+    }
+  }
+
+  private static Message toAlert(ThresholdRule rule, String accountId, String asset, RollingSum sum) {
+    String moved = switch (rule.direction()) {
+      case INCOMING -> "received";
+      case OUTGOING -> "sent";
+      case ANY -> "moved";
+    };
+    String window = formatWindow(rule.window());
+    String total = Stroops.format(sum.total());
+    String body = "Account " + accountId + " " + moved + " " + total + " " + asset + " in " + sum.count()
+      + " operations in the last " + window + ", reaching the " + Stroops.format(rule.amount()) + " threshold of alert rule "
+      + rule.name() + ".";
+    return new Message("Stellar alert: " + total + " " + asset + " " + moved + " in " + window, body)
+      .withPriority(Priority.HIGH);
+  }
+
+  private static String formatWindow(Duration window) {
+    if (window.toMinutes() % 60 != 0) {
+      return window.toMinutes() + "min";
+    }
+    return window.toHours() + "h";
+  }
+
+  private synchronized void saveIfChanged() {
+    if (!changed) {
+      return;
+    }
+
+    Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(rules.size());
+        out.writeInt(accounts.size());
+        for (Map.Entry<String, AccountSums> account : accounts.entrySet()) {
+          out.writeUTF(account.getKey());
+          out.writeLong(account.getValue().lastOperationId);
+          for (int i = 0; i < rules.size(); i++) {
+            Map<String, RollingSum> sums = account.getValue().sums.get(i);
+            out.writeUTF(rules.get(i).name());
+            out.writeLong(rules.get(i).window().toMillis());
+            out.writeInt(sums.size());
+            for (Map.Entry<String, RollingSum> sum : sums.entrySet()) {
+              out.writeUTF(sum.getKey());
+              sum.getValue().writeTo(out);
+            }
+          }
+        }
+      }
+      Files.move(tmp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      changed = false;
+    } catch (IOException e) {
+      log.warn("Error saving alert totals to {}: {}", stateFile, e.getMessage());
+    }
+  }
+
+  /**
+   * Restores the totals of the rules still configured with the same window.
+   */
+  private void load() {
+    if (!Files.exists(stateFile)) {
+      return;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        log.warn("Ignoring alert totals file {} with unknown version {}", stateFile, version);
+        return;
+      }
+      int ruleCount = in.readInt();
+      int accountCount = in.readInt();
+      for (int a = 0; a < accountCount; a++) {
+        AccountSums account = new AccountSums(rules.size());
+        accounts.put(in.readUTF(), account);
+        account.lastOperationId = in.readLong();
+        for (int r = 0; r < ruleCount; r++) {
+          String ruleName = in.readUTF();
+          long windowMillis = in.readLong();
+          int rule = indexOf(ruleName, windowMillis);
+          int sumCount = in.readInt();
+          for (int s = 0; s < sumCount; s++) {
+            String asset = in.readUTF();
+            RollingSum sum = new RollingSum(windowMillis, BUCKETS);
+            sum.readFrom(in);
+            if (rule >= 0) {
+              account.sums.get(rule).put(asset, sum);
+            }
+          }
+        }
+      }
+      log.info("Loaded alert totals of {} accounts from {}", accounts.size(), stateFile);
+    } catch (IOException e) {
+      log.warn("Error reading alert totals file {}, starting from empty totals: {}", stateFile, e.getMessage());
+      accounts.clear();
+    }
+  }
+
+  private int indexOf(String ruleName, long windowMillis) {
+    for (int i = 0; i < rules.size(); i++) {
+      if (rules.get(i).name().equals(ruleName) && rules.get(i).window().toMillis() == windowMillis) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static class AccountSums {
+
+    private final List<Map<String, RollingSum>> sums = new ArrayList<>();
+    private long lastOperationId = -1;
+
+    AccountSums(int rules) {
+      for (int i = 0; i < rules; i++) {
+        sums.add(new HashMap<>());
+      }
+    }
+  }
+}
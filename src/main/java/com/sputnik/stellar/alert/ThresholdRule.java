@@ -0,0 +1,30 @@
+package com.sputnik.stellar.alert;
+
+import com.sputnik.stellar.asset.AssetDescriptor;
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.filter.Direction;
+import com.sputnik.stellar.message.OperationFacts;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Alerts when the amount an account moves of an asset within a window reaches a threshold. Every asset has its own
+ * total.
+ *
+ * @param assets    asset codes ({@code XLM} for lumens) or {@code CODE:ISSUER} pairs, null for any asset
+ * @param direction received or sent amounts
+ * @param amount    threshold in stroops
+ */
+public record ThresholdRule(String name, Set<String> assets, Direction direction, Duration window, long amount) {
+
+  public boolean matches(OperationFacts facts) {
+    if (facts.asset() == null || !facts.hasAmount() || !direction.matches(facts.incoming())) {
+      return false;
+    } else if (assets == null || assets.isEmpty()) {
+      return true;
+    }
+
+    AssetDescriptor descriptor = AssetDescriptors.of(facts.asset());
+    return assets.contains(descriptor.code()) || assets.contains(descriptor.name());
+  }
+}
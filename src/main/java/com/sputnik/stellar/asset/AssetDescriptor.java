@@ -0,0 +1,14 @@
+package com.sputnik.stellar.asset;
+
+/**
+ * @param code       asset code, {@code XLM} for lumens
+ * @param issuer     issuer account, null for lumens
+ * @param name       name used in the notifications: {@code lumens} or {@code CODE:ISSUER}
+ * @param homeDomain home domain of the issuer, null if unknown
+ */
+public record AssetDescriptor(String code, String issuer, String name, String homeDomain) {
+
+  AssetDescriptor withHomeDomain(String domain) {
+    return new AssetDescriptor(code, issuer, name, domain);
+  }
+}
@@ -0,0 +1,109 @@
+package com.sputnik.stellar.asset;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.stellar.sdk.Asset;
+import org.stellar.sdk.AssetTypeCreditAlphaNum;
+import org.stellar.sdk.AssetTypeNative;
+
+/**
+ * Bounded, least recently used, cache of {@link AssetDescriptor} by asset (code and issuer), so the names of the assets are
+ * built once instead of on every operation. Codes and issuers are interned, as the same few assets appear in most
+ * operations.
+ * <p>
+ * With a home domain resolver the home domains of the issuers are looked up in the background, and the descriptors are
+ * replaced when found.
+ */
+@Slf4j
+public final class AssetDescriptors {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+  private static final AssetDescriptor LUMENS = new AssetDescriptor("XLM", null, "lumens", null);
+  private static final AssetDescriptor UNKNOWN = new AssetDescriptor("unknown", null, "unknown", null);
+  private static final AssetDescriptors SHARED = new AssetDescriptors(DEFAULT_MAX_SIZE);
+
+  private final Map<Asset, AssetDescriptor> descriptors;
+  private volatile UnaryOperator<String> homeDomainResolver;
+  private volatile Executor resolverExecutor;
+
+  public AssetDescriptors(int maxSize) {
+    this.descriptors = new LinkedHashMap<>(64, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Asset, AssetDescriptor> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the cache shared by the launchers and the messages creator
+   */
+  public static AssetDescriptors shared() {
+    return SHARED;
+  }
+
+  public static AssetDescriptor of(Asset asset) {
+    return SHARED.get(asset);
+  }
+
+  /**
+   * @param resolver home domain of an issuer account, or null if it has none
+   * @param executor runs the resolutions
+   */
+  public void resolveHomeDomains(UnaryOperator<String> resolver, Executor executor) {
+    this.resolverExecutor = executor;
+    this.homeDomainResolver = resolver;
+  }
+
+  public AssetDescriptor get(Asset asset) {
+    if (asset instanceof AssetTypeNative) {
+      return LUMENS;
+    }
+    if (!(asset instanceof AssetTypeCreditAlphaNum creditAsset)) {
+      return UNKNOWN;
+    }
+
+    AssetDescriptor descriptor;
+    synchronized (descriptors) {
+      descriptor = descriptors.get(asset);
+      if (descriptor != null) {
+        return descriptor;
+      }
+      String code = creditAsset.getCode().intern();
+      String issuer = creditAsset.getIssuer().intern();
+      descriptor = new AssetDescriptor(code, issuer, code + ":" + issuer, null);
+      descriptors.put(asset, descriptor);
+    }
+
+    UnaryOperator<String> resolver = homeDomainResolver;
+    if (resolver != null) {
+      resolverExecutor.execute(() -> resolveHomeDomain(asset, resolver));
+    }
+    return descriptor;
+  }
+
+  private void resolveHomeDomain(Asset asset, UnaryOperator<String> resolver) {
+    try {
+      AssetDescriptor descriptor;
+      synchronized (descriptors) {
+        descriptor = descriptors.get(asset);
+      }
+      if (descriptor == null) {
+        return;
+      }
+
+      String homeDomain = resolver.apply(descriptor.issuer());
+      if (StringUtils.isNotBlank(homeDomain)) {
+        synchronized (descriptors) {
+          descriptors.computeIfPresent(asset, (key, current) -> current.withHomeDomain(homeDomain.intern()));
+        }
+      }
+    } catch (Exception e) {
+      log.debug("Error resolving home domain of {}: {}", asset, e.getMessage());
+    }
+  }
+}
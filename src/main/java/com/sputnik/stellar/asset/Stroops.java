@@ -0,0 +1,93 @@
+package com.sputnik.stellar.asset;
+
+/**
+ * Stellar amounts as a whole number of stroops, the ten-millionth part of a unit of any asset. Horizon formats amounts
+ * with seven decimals, so they are parsed and added exactly in a {@code long}, with no {@code BigDecimal}.
+ */
+public final class Stroops {
+
+  public static final int DECIMALS = 7;
+  public static final long PER_UNIT = 10_000_000L;
+  /**
+   * Amount of operations that don't move funds, or whose amount isn't readable.
+   */
+  public static final long NONE = -1;
+
+  private Stroops() {
+  }
+
+  /**
+   * @param amount non-negative decimal amount, with at most seven decimals
+   * @throws NumberFormatException if the amount isn't one, or doesn't fit in a {@code long}
+   */
+  public static long parse(String amount) {
+    long stroops = parseOrNone(amount);
+    if (stroops == NONE) {
+      throw new NumberFormatException("Invalid amount: " + amount);
+    }
+    return stroops;
+  }
+
+  /**
+   * @return the amount in stroops, {@link #NONE} if it's null or invalid
+   */
+  public static long parseOrNone(String amount) {
+    if (amount == null) {
+      return NONE;
+    }
+
+    int length = amount.length();
+    long stroops = 0;
+    int digits = 0;
+    int decimals = -1;
+    for (int i = 0; i < length; i++) {
+      char c = amount.charAt(i);
+      if (c == '.' && decimals < 0) {
+        decimals = 0;
+        continue;
+      }
+      if (c < '0' || c > '9' || decimals == DECIMALS) {
+        return NONE;
+      }
+      if (stroops > (Long.MAX_VALUE - (c - '0')) / 10) {
+        return NONE;
+      }
+      stroops = stroops * 10 + (c - '0');
+      digits++;
+      if (decimals >= 0) {
+        decimals++;
+      }
+    }
+    if (digits == 0) {
+      return NONE;
+    }
+
+    for (int scale = Math.max(decimals, 0); scale < DECIMALS; scale++) {
+      if (stroops > Long.MAX_VALUE / 10) {
+        return NONE;
+      }
+      stroops *= 10;
+    }
+    return stroops;
+  }
+
+  /**
+   * @param stroops non-negative amount
+   * @return the amount with seven decimals, as Horizon formats it
+   */
+  public static String format(long stroops) {
+    StringBuilder fraction = new StringBuilder(Long.toString(stroops % PER_UNIT));
+    while (fraction.length() < DECIMALS) {
+      fraction.insert(0, '0');
+    }
+    return (stroops / PER_UNIT) + "." + fraction;
+  }
+
+  /**
+   * @return the sum, or {@link Long#MAX_VALUE} if it overflows
+   */
+  public static long add(long stroops, long other) {
+    long sum = stroops + other;
+    return ((stroops ^ sum) & (other ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+  }
+}
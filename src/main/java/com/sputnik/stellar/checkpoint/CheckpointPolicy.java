@@ -0,0 +1,15 @@
+package com.sputnik.stellar.checkpoint;
+
+/**
+ * When the cursor journal is written to disk.
+ *
+ * @param flushEvents    flush after this number of recorded events
+ * @param flushMillis    flush at least every this number of milliseconds
+ * @param fsync          force the journal to the storage device on every flush
+ * @param compactEntries rewrite the journal once it has more than this number of entries
+ * @param seenOperations number of notified operation ids remembered per account to drop duplicates
+ */
+public record CheckpointPolicy(int flushEvents, long flushMillis, boolean fsync, int compactEntries, int seenOperations) {
+
+  public static final CheckpointPolicy DEFAULT = new CheckpointPolicy(100, 1000, true, 10_000, 1000);
+}
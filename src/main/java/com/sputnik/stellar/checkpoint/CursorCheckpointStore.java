@@ -0,0 +1,318 @@
+package com.sputnik.stellar.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Paging cursor per account, kept in memory and written behind to an append-only journal of {@code account=cursor} lines.
+ * The journal is compacted to one line per account (written to a temporary file and atomically renamed) when it grows.
+ * <p>
+ * Cursors are recorded after the operation has been notified, so after a crash the notifier resumes at most one flush
+ * interval behind: operations may be notified again, but never skipped. To drop those duplicates the ids of the last
+ * notified operations of every account are saved too, in a {@code .seen} file next to the journal. It's appended the
+ * ids recorded since the previous flush on every flush, before the cursors, and compacted to the remembered ids of every
+ * account on start and once the ids appended outnumber them.
+ */
+@Slf4j
+public class CursorCheckpointStore implements AutoCloseable {
+
+  private static final char SEPARATOR = '=';
+  private static final int SEEN_FORMAT_VERSION = 1;
+
+  private final Path journal;
+  private final Path seenFile;
+  private final CheckpointPolicy policy;
+  private final Map<String, String> cursors = new ConcurrentHashMap<>();
+  private final Map<String, String> durableCursors = new LinkedHashMap<>();
+  private final Map<String, String> pending = new LinkedHashMap<>();
+  private final Map<String, SeenOperationIndex> seenOperations = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService flusher;
+  private FileChannel channel;
+  private FileChannel seenChannel;
+  private int pendingEvents;
+  private int journalEntries;
+  private long seenEntries;
+  private long compactedSeenEntries;
+  private boolean seenIncomplete;
+  private volatile long lastFlushMillis = System.currentTimeMillis();
+
+  public CursorCheckpointStore(Path journal, CheckpointPolicy policy) {
+    this.journal = journal;
+    this.policy = policy;
+    this.seenFile = journal.resolveSibling(journal.getFileName() + ".seen");
+    try {
+      load();
+      loadSeenOperations();
+      compactSeenOperations();
+      channel = openJournal();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error opening cursor journal " + journal, e);
+    }
+
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "cursor-checkpoint");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flush, policy.flushMillis(), policy.flushMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  public String get(String accountId) {
+    return cursors.get(accountId);
+  }
+
+  /**
+   * @return true if the operation is one of the last ones recorded for the account
+   */
+  public boolean isDelivered(String accountId, long operationId) {
+    SeenOperationIndex index = seenOperations.get(accountId);
+    return index != null && index.contains(operationId);
+  }
+
+  public void record(String accountId, long operationId, String pagingToken) {
+    seenOperations.computeIfAbsent(accountId, id -> new SeenOperationIndex(policy.seenOperations())).add(operationId);
+    record(accountId, pagingToken);
+  }
+
+  public void record(String accountId, String pagingToken) {
+    cursors.put(accountId, pagingToken);
+    boolean flushNow;
+    synchronized (pending) {
+      pending.put(accountId, pagingToken);
+      flushNow = ++pendingEvents >= policy.flushEvents();
+      if (flushNow) {
+        pendingEvents = 0;
+      }
+    }
+
+    if (flushNow) {
+      flusher.execute(this::flush);
+    }
+  }
+
+  public long getLastFlushMillis() {
+    return lastFlushMillis;
+  }
+
+  public synchronized void flush() {
+    Map<String, String> toWrite;
+    synchronized (pending) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      toWrite = new LinkedHashMap<>(pending);
+      pending.clear();
+      pendingEvents = 0;
+    }
+
+    try {
+      saveSeenOperations();
+      StringBuilder lines = new StringBuilder();
+      toWrite.forEach((accountId, pagingToken) -> appendLine(lines, accountId, pagingToken));
+      write(channel, lines);
+      durableCursors.putAll(toWrite);
+      journalEntries += toWrite.size();
+      lastFlushMillis = System.currentTimeMillis();
+
+      if (journalEntries > policy.compactEntries()) {
+        compact();
+      }
+    } catch (IOException e) {
+      log.warn("Error writing cursor journal {}: {}", journal, e.getMessage());
+      synchronized (pending) {
+        toWrite.forEach(pending::putIfAbsent);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    flusher.shutdown();
+    flush();
+    synchronized (this) {
+      try {
+        channel.close();
+        seenChannel.close();
+      } catch (IOException e) {
+        log.warn("Error closing cursor journal {}: {}", journal, e.getMessage());
+      }
+    }
+  }
+
+  private void compact() throws IOException {
+    log.debug("Compacting cursor journal {} ({} entries)", journal, journalEntries);
+    Path compacted = journal.resolveSibling(journal.getFileName() + ".tmp");
+    StringBuilder lines = new StringBuilder();
+    durableCursors.forEach((accountId, pagingToken) -> appendLine(lines, accountId, pagingToken));
+    try (FileChannel compactedChannel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      write(compactedChannel, lines);
+      compactedChannel.force(true);
+    }
+
+    channel.close();
+    Files.move(compacted, journal, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    channel = openJournal();
+    journalEntries = durableCursors.size();
+  }
+
+  private void write(FileChannel target, CharSequence lines) throws IOException {
+    write(target, StandardCharsets.UTF_8.encode(lines.toString()));
+  }
+
+  private void write(FileChannel target, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      target.write(buffer);
+    }
+    if (policy.fsync()) {
+      target.force(false);
+    }
+  }
+
+  private void load() throws IOException {
+    if (Files.exists(journal)) {
+      byte[] content = Files.readAllBytes(journal);
+      int end = content.length;
+      while (end > 0 && content[end - 1] != '\n') {
+        end--;
+      }
+      if (end < content.length) {
+        // a line without its end of line is an interrupted write, drop it so the next append starts on a new line
+        log.warn("Discarding incomplete entry at the end of cursor journal {}", journal);
+        try (FileChannel truncate = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+          truncate.truncate(end);
+        }
+      }
+
+      for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+        int separator = line.indexOf(SEPARATOR);
+        if (separator > 0) {
+          durableCursors.put(line.substring(0, separator), line.substring(separator + 1));
+          journalEntries++;
+        }
+      }
+      cursors.putAll(durableCursors);
+      log.info("Loaded {} cursors from {}", cursors.size(), journal);
+    }
+  }
+
+  /**
+   * Appends the ids recorded since the previous call, compacting the file instead when needed.
+   */
+  private void saveSeenOperations() throws IOException {
+    if (seenIncomplete || seenEntries - compactedSeenEntries > Math.max(compactedSeenEntries, policy.compactEntries())) {
+      compactSeenOperations();
+      return;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    int ids = 0;
+    for (Map.Entry<String, SeenOperationIndex> entry : seenOperations.entrySet()) {
+      long[] unsaved = entry.getValue().takeUnsaved();
+      if (unsaved.length > 0) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(unsaved.length);
+        for (long operationId : unsaved) {
+          out.writeLong(operationId);
+        }
+        ids += unsaved.length;
+      }
+    }
+    if (ids == 0) {
+      return;
+    }
+
+    try {
+      write(seenChannel, ByteBuffer.wrap(bytes.toByteArray()));
+      seenEntries += ids;
+    } catch (IOException e) {
+      // the ids taken are lost for the appends, rewrite all of them on the next flush
+      seenIncomplete = true;
+      throw e;
+    }
+  }
+
+  private void compactSeenOperations() throws IOException {
+    Path tmp = seenFile.resolveSibling(seenFile.getFileName() + ".tmp");
+    long ids = 0;
+    try (FileChannel compactedChannel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.TRUNCATE_EXISTING)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(compactedChannel)));
+      out.writeInt(SEEN_FORMAT_VERSION);
+      for (Map.Entry<String, SeenOperationIndex> entry : seenOperations.entrySet()) {
+        out.writeUTF(entry.getKey());
+        ids += entry.getValue().size();
+        entry.getValue().writeTo(out);
+      }
+      out.flush();
+      if (policy.fsync()) {
+        compactedChannel.force(true);
+      }
+    }
+
+    if (seenChannel != null) {
+      seenChannel.close();
+    }
+    Files.move(tmp, seenFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    seenChannel = FileChannel.open(seenFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    seenEntries = ids;
+    compactedSeenEntries = ids;
+    seenIncomplete = false;
+  }
+
+  private void loadSeenOperations() {
+    if (!Files.exists(seenFile)) {
+      return;
+    }
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(seenFile)))) {
+      int version = in.readInt();
+      if (version != SEEN_FORMAT_VERSION) {
+        log.warn("Ignoring seen operations file {} with unknown version {}", seenFile, version);
+        return;
+      }
+      while (in.available() > 0) {
+        String accountId = in.readUTF();
+        seenOperations.computeIfAbsent(accountId, id -> new SeenOperationIndex(policy.seenOperations())).readFrom(in);
+      }
+      log.info("Loaded seen operations of {} accounts from {}", seenOperations.size(), seenFile);
+    } catch (EOFException e) {
+      // an interrupted append, dropped by the compaction on start
+      log.warn("Discarding incomplete entry at the end of seen operations file {}", seenFile);
+    } catch (IOException e) {
+      // only duplicates detection is lost
+      log.warn("Error reading seen operations file {}: {}", seenFile, e.getMessage());
+      seenOperations.clear();
+    }
+  }
+
+  private FileChannel openJournal() throws IOException {
+    return FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private static void appendLine(StringBuilder lines, String accountId, String pagingToken) {
+    lines.append(accountId).append(SEPARATOR).append(pagingToken).append('\n');
+  }
+}
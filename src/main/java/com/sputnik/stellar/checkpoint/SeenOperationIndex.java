@@ -0,0 +1,139 @@
+package com.sputnik.stellar.checkpoint;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The last {@code capacity} operation ids recorded for an account: a ring buffer with the insertion order, to evict the
+ * oldest id, and an open-addressing hash set of primitive longs (linear probing, 0 as empty slot) for the lookups.
+ * It also counts the ids added since they were last taken with {@link #takeUnsaved()}, to save them incrementally.
+ */
+class SeenOperationIndex {
+
+  private static final long EMPTY = 0;
+
+  private final long[] ring;
+  private final long[] table;
+  private final int mask;
+  private int head;
+  private int size;
+  private int unsaved;
+
+  SeenOperationIndex(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    ring = new long[capacity];
+    // at most half full
+    table = new long[Integer.highestOneBit(capacity * 4 - 1)];
+    mask = table.length - 1;
+  }
+
+  synchronized boolean contains(long operationId) {
+    if (operationId == EMPTY) {
+      return false;
+    }
+    for (int i = slot(operationId); table[i] != EMPTY; i = (i + 1) & mask) {
+      if (table[i] == operationId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return false if the id was already in the index
+   */
+  synchronized boolean add(long operationId) {
+    if (operationId == EMPTY || contains(operationId)) {
+      return false;
+    }
+
+    if (size == ring.length) {
+      remove(ring[head]);
+    } else {
+      size++;
+    }
+    ring[head] = operationId;
+    head = (head + 1) % ring.length;
+    unsaved = Math.min(unsaved + 1, ring.length);
+
+    int i = slot(operationId);
+    while (table[i] != EMPTY) {
+      i = (i + 1) & mask;
+    }
+    table[i] = operationId;
+    return true;
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Writes the ids from the oldest to the newest, and counts them as saved.
+   */
+  synchronized void writeTo(DataOutput out) throws IOException {
+    out.writeInt(size);
+    int oldest = size < ring.length ? 0 : head;
+    for (int n = 0; n < size; n++) {
+      out.writeLong(ring[(oldest + n) % ring.length]);
+    }
+    unsaved = 0;
+  }
+
+  /**
+   * @return the ids added since the previous call or {@link #writeTo}, from the oldest to the newest
+   */
+  synchronized long[] takeUnsaved() {
+    long[] ids = new long[unsaved];
+    for (int n = 0; n < unsaved; n++) {
+      ids[n] = ring[Math.floorMod(head - unsaved + n, ring.length)];
+    }
+    unsaved = 0;
+    return ids;
+  }
+
+  /**
+   * Adds the ids written by {@link #writeTo}, already saved.
+   */
+  synchronized void readFrom(DataInput in) throws IOException {
+    int count = in.readInt();
+    for (int n = 0; n < count; n++) {
+      add(in.readLong());
+    }
+    unsaved = 0;
+  }
+
+  private void remove(long operationId) {
+    int i = slot(operationId);
+    while (table[i] != operationId) {
+      if (table[i] == EMPTY) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+
+    // backward shift deletion: move back the following entries of the cluster that would not be found past the hole
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (table[j] == EMPTY) {
+        break;
+      }
+      int home = slot(table[j]);
+      boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+      if (movable) {
+        table[i] = table[j];
+        i = j;
+      }
+    }
+    table[i] = EMPTY;
+  }
+
+  private int slot(long operationId) {
+    long hash = operationId * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+}
@@ -0,0 +1,61 @@
+package com.sputnik.stellar.claimable;
+
+import java.time.Instant;
+import org.stellar.sdk.Predicate;
+
+public final class ClaimPredicates {
+
+  private ClaimPredicates() {
+  }
+
+  public static String toText(Predicate predicate) {
+    if (predicate instanceof Predicate.Unconditional) {
+      return "Unconditional";
+    } else if (predicate instanceof Predicate.And predicateAnd) {
+      return toText(predicateAnd.getLeft()) + " and " + toText(predicateAnd.getRight());
+    } else if (predicate instanceof Predicate.Or predicateOr) {
+      return toText(predicateOr.getLeft()) + " or " + toText(predicateOr.getRight());
+    } else if (predicate instanceof Predicate.Not predicateNot) {
+      return "not " + toText(predicateNot.getInner());
+    } else if (predicate instanceof Predicate.AbsBefore predicateAbsBefore) {
+      return "Before " + predicateAbsBefore.getDate();
+    } else if (predicate instanceof Predicate.RelBefore predicateRelBefore) {
+      return "Before " + predicateRelBefore.getSecondsSinceClose();
+    } else {
+      return "Unknown";
+    }
+  }
+
+  /**
+   * Compiles the predicate into the windows when the balance can be claimed.
+   *
+   * @param balanceCreation close time of the ledger that created the balance, the reference of the relative predicates
+   */
+  public static ClaimWindows compile(Predicate predicate, Instant balanceCreation) {
+    if (predicate instanceof Predicate.Unconditional) {
+      return ClaimWindows.ALWAYS;
+    } else if (predicate instanceof Predicate.And predicateAnd) {
+      return compile(predicateAnd.getLeft(), balanceCreation).and(compile(predicateAnd.getRight(), balanceCreation));
+    } else if (predicate instanceof Predicate.Or predicateOr) {
+      return compile(predicateOr.getLeft(), balanceCreation).or(compile(predicateOr.getRight(), balanceCreation));
+    } else if (predicate instanceof Predicate.Not predicateNot) {
+      return compile(predicateNot.getInner(), balanceCreation).not();
+    } else if (predicate instanceof Predicate.AbsBefore predicateAbsBefore) {
+      return ClaimWindows.before(predicateAbsBefore.getDate().getEpochSecond());
+    } else if (predicate instanceof Predicate.RelBefore predicateRelBefore) {
+      long created = balanceCreation.getEpochSecond();
+      long seconds = predicateRelBefore.getSecondsSinceClose();
+      return ClaimWindows.before(seconds > Long.MAX_VALUE - created ? Long.MAX_VALUE : created + seconds);
+    } else {
+      return ClaimWindows.NEVER;
+    }
+  }
+
+  /**
+   * Evaluates the predicate of a balance created now. Compile it with the actual creation time to evaluate relative
+   * predicates of existing balances.
+   */
+  public static boolean evaluate(Predicate predicate, Instant now) {
+    return compile(predicate, now).contains(now);
+  }
+}
@@ -0,0 +1,154 @@
+package com.sputnik.stellar.claimable;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * The times, in epoch seconds, when a balance can be claimed: a normalized set of sorted, disjoint and non-adjacent
+ * half-open intervals {@code [start, end)}, stored as {@code [start0, end0, start1, end1, ...]}. {@link Long#MIN_VALUE}
+ * and {@link Long#MAX_VALUE} stand for no start and no end.
+ */
+public final class ClaimWindows {
+
+  public static final ClaimWindows ALWAYS = new ClaimWindows(new long[] {Long.MIN_VALUE, Long.MAX_VALUE});
+  public static final ClaimWindows NEVER = new ClaimWindows(new long[0]);
+
+  private final long[] bounds;
+
+  private ClaimWindows(long[] bounds) {
+    this.bounds = bounds;
+  }
+
+  public static ClaimWindows before(long epochSecond) {
+    return epochSecond == Long.MIN_VALUE ? NEVER : new ClaimWindows(new long[] {Long.MIN_VALUE, epochSecond});
+  }
+
+  public boolean contains(Instant instant) {
+    return contains(instant.getEpochSecond());
+  }
+
+  public boolean contains(long epochSecond) {
+    // inside an interval when an odd number of bounds are at or before it
+    return (upperBound(epochSecond) & 1) == 1;
+  }
+
+  /**
+   * @return the first time after the given one when the balance becomes claimable or stops being claimable, null if it
+   * never changes
+   */
+  public Instant nextChange(Instant after) {
+    int next = upperBound(after.getEpochSecond());
+    if (next == bounds.length || bounds[next] > Instant.MAX.getEpochSecond()) {
+      return null;
+    }
+    return Instant.ofEpochSecond(bounds[next]);
+  }
+
+  public boolean isNever() {
+    return bounds.length == 0;
+  }
+
+  public ClaimWindows and(ClaimWindows other) {
+    return combine(this, other, false);
+  }
+
+  public ClaimWindows or(ClaimWindows other) {
+    return combine(this, other, true);
+  }
+
+  public ClaimWindows not() {
+    boolean fromStart = bounds.length > 0 && bounds[0] == Long.MIN_VALUE;
+    boolean toEnd = bounds.length > 0 && bounds[bounds.length - 1] == Long.MAX_VALUE;
+    long[] complement = new long[bounds.length + (fromStart ? -1 : 1) + (toEnd ? -1 : 1)];
+    int size = 0;
+    if (!fromStart) {
+      complement[size++] = Long.MIN_VALUE;
+    }
+    for (int i = fromStart ? 1 : 0; i < (toEnd ? bounds.length - 1 : bounds.length); i++) {
+      complement[size++] = bounds[i];
+    }
+    if (!toEnd) {
+      complement[size] = Long.MAX_VALUE;
+    }
+    return new ClaimWindows(complement);
+  }
+
+  private static ClaimWindows combine(ClaimWindows a, ClaimWindows b, boolean union) {
+    long[] points = new long[a.bounds.length + b.bounds.length + 1];
+    points[0] = Long.MIN_VALUE;
+    System.arraycopy(a.bounds, 0, points, 1, a.bounds.length);
+    System.arraycopy(b.bounds, 0, points, 1 + a.bounds.length, b.bounds.length);
+    Arrays.sort(points);
+
+    // membership only changes at the bounds, so it's constant from each point to the next one
+    long[] result = new long[points.length + 1];
+    int size = 0;
+    boolean inside = false;
+    for (int i = 0; i < points.length; i++) {
+      if (i > 0 && points[i] == points[i - 1]) {
+        continue;
+      }
+      boolean contained = union ? a.contains(points[i]) || b.contains(points[i]) : a.contains(points[i]) && b.contains(points[i]);
+      if (contained != inside) {
+        result[size++] = points[i];
+        inside = contained;
+      }
+    }
+    if (inside) {
+      result[size++] = Long.MAX_VALUE;
+    }
+    return new ClaimWindows(Arrays.copyOf(result, size));
+  }
+
+  private int upperBound(long epochSecond) {
+    int low = 0;
+    int high = bounds.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (bounds[middle] <= epochSecond) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static String toText(long epochSecond) {
+    return epochSecond > Instant.MAX.getEpochSecond() ? String.valueOf(epochSecond) : Instant.ofEpochSecond(epochSecond).toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ClaimWindows other && Arrays.equals(bounds, other.bounds);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bounds);
+  }
+
+  @Override
+  public String toString() {
+    if (isNever()) {
+      return "Never";
+    }
+
+    StringJoiner windows = new StringJoiner(" or ");
+    for (int i = 0; i < bounds.length; i += 2) {
+      boolean fromStart = bounds[i] == Long.MIN_VALUE;
+      boolean toEnd = bounds[i + 1] == Long.MAX_VALUE;
+      if (fromStart && toEnd) {
+        windows.add("Unconditional");
+      } else if (fromStart) {
+        windows.add("Before " + toText(bounds[i + 1]));
+      } else if (toEnd) {
+        windows.add("After " + toText(bounds[i]));
+      } else {
+        windows.add("Between " + toText(bounds[i]) + " and " + toText(bounds[i + 1]));
+      }
+    }
+    return windows.toString();
+  }
+}
@@ -0,0 +1,293 @@
+package com.sputnik.stellar.claimable;
+
+import com.sputnik.stellar.asset.AssetDescriptor;
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.horizon.HorizonPool;
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.util.TimerWheel;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.Predicate;
+import org.stellar.sdk.requests.RequestBuilder.Order;
+import org.stellar.sdk.responses.ClaimableBalanceResponse;
+import org.stellar.sdk.responses.Claimant;
+
+/**
+ * Periodically scans the claimable balances of an account and sends a message with the changes: new balances and claimed
+ * balances.
+ * <p>
+ * The first scan walks all the pages and keeps a snapshot by balance id. Next scans only ask for the balances modified
+ * after the last paging token. Claimed balances disappear from Horizon instead of being modified, so a full scan
+ * reconciles the snapshot every {@code reconcileInterval}.
+ * <p>
+ * The claim predicate of every balance is compiled once into its {@link ClaimWindows}, and the next change of each balance
+ * (the window opening, the expiration warning or the window closing) is scheduled in a {@link TimerWheel}, so the alerts
+ * are sent when they happen instead of evaluating the predicates on every scan.
+ */
+@Slf4j
+public class ClaimableBalanceScanner implements AutoCloseable {
+
+  private static final int PAGE_SIZE = 200;
+
+  private final HorizonPool horizon;
+  private final String accountId;
+  private final Duration reconcileInterval;
+  private final Duration expiryWarning;
+  private final Set<String> excludedAssets;
+  private final Consumer<Message> delivery;
+  private final TimerWheel timers;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, TrackedBalance> snapshot = new HashMap<>();
+  private String cursor;
+  private Instant lastReconcile;
+
+  /**
+   * @param expiryWarning  time before a balance stops being claimable to send an alert
+   * @param excludedAssets asset codes, or {@code CODE:ISSUER}, whose balances are ignored
+   */
+  public ClaimableBalanceScanner(HorizonPool horizon, String accountId, Duration reconcileInterval, Duration expiryWarning,
+    Set<String> excludedAssets, Consumer<Message> delivery, TimerWheel timers) {
+    this.horizon = horizon;
+    this.accountId = accountId;
+    this.reconcileInterval = reconcileInterval;
+    this.expiryWarning = expiryWarning;
+    this.excludedAssets = excludedAssets;
+    this.delivery = delivery;
+    this.timers = timers;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "claimable-scanner-" + accountId.substring(0, 6));
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void start(Duration interval) {
+    scheduler.scheduleWithFixedDelay(this::scan, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    snapshot.values().forEach(TrackedBalance::cancelAlert);
+  }
+
+  /**
+   * Walks all the pages of the claimable balances of the account modified after the cursor, oldest first.
+   *
+   * @param cursor paging token to start after, null for all the balances
+   * @return paging token of the last balance, or the given cursor if there are none
+   */
+  public static String forEachBalance(HorizonPool horizon, String accountId, String cursor,
+    Consumer<ClaimableBalanceResponse> action) {
+    String pagingToken = cursor;
+    List<ClaimableBalanceResponse> records;
+    do {
+      String pageCursor = pagingToken;
+      records = horizon.call(server -> {
+        var request = server.claimableBalances().forClaimant(accountId).order(Order.ASC).limit(PAGE_SIZE);
+        if (pageCursor != null) {
+          request.cursor(pageCursor);
+        }
+        return request.execute().getRecords();
+      });
+      for (ClaimableBalanceResponse balance : records) {
+        action.accept(balance);
+        pagingToken = balance.getPagingToken();
+      }
+    } while (records.size() == PAGE_SIZE);
+
+    return pagingToken;
+  }
+
+  void scan() {
+    try {
+      Instant now = Instant.now();
+      ScanChanges changes;
+      if (lastReconcile == null) {
+        int count = fullScan(now).added().size();
+        log.info("[{}] Tracking {} claimable balances", accountId, count);
+        return;
+      } else if (now.isAfter(lastReconcile.plus(reconcileInterval))) {
+        changes = fullScan(now);
+      } else {
+        changes = incrementalScan(now);
+      }
+
+      if (!changes.isEmpty()) {
+        delivery.accept(changes.toMessage());
+      }
+    } catch (Exception e) {
+      log.warn("[{}] Error scanning claimable balances: {}", accountId, e.getMessage(), e);
+    }
+  }
+
+  private ScanChanges fullScan(Instant now) {
+    Map<String, ClaimableBalanceResponse> current = new HashMap<>();
+    String lastPagingToken = forEachBalance(horizon, accountId, null, balance -> current.put(balance.getId(), balance));
+
+    ScanChanges changes = new ScanChanges();
+    snapshot.values().removeIf(tracked -> {
+      if (!current.containsKey(tracked.balance.getId())) {
+        tracked.cancelAlert();
+        changes.claimed().add(tracked);
+        return true;
+      }
+      return false;
+    });
+    current.values().forEach(balance -> track(balance, now, changes));
+    cursor = lastPagingToken;
+    lastReconcile = now;
+
+    return changes;
+  }
+
+  private ScanChanges incrementalScan(Instant now) {
+    ScanChanges changes = new ScanChanges();
+    cursor = forEachBalance(horizon, accountId, cursor, balance -> track(balance, now, changes));
+
+    return changes;
+  }
+
+  private void track(ClaimableBalanceResponse balance, Instant now, ScanChanges changes) {
+    TrackedBalance tracked = snapshot.get(balance.getId());
+    if (tracked != null) {
+      // the claimants of a balance can't change, its windows neither
+      tracked.balance = balance;
+      return;
+    }
+    if (isExcluded(balance)) {
+      return;
+    }
+
+    Predicate predicate = balance.getClaimants().stream()
+      .filter(claimant -> claimant.getDestination().equalsIgnoreCase(accountId))
+      .map(Claimant::getPredicate)
+      .findFirst()
+      .orElse(null);
+    if (predicate == null) {
+      return;
+    }
+
+    // the last modification is the creation unless the sponsorship of the balance changed
+    Instant created = balance.getLastModifiedTime() != null ? Instant.parse(balance.getLastModifiedTime()) : now;
+    tracked = new TrackedBalance(balance, ClaimPredicates.compile(predicate, created));
+    snapshot.put(balance.getId(), tracked);
+    changes.added().add(tracked);
+    scheduleAlert(tracked, now);
+  }
+
+  private void scheduleAlert(TrackedBalance tracked, Instant from) {
+    tracked.cancelAlert();
+    Instant change = tracked.windows.nextChange(from);
+    if (change == null) {
+      return;
+    }
+
+    if (!tracked.windows.contains(from)) {
+      scheduleAlert(tracked, change, Alert.OPENED);
+    } else if (!change.equals(tracked.warnedExpiration)) {
+      Instant warning = change.minus(expiryWarning);
+      scheduleAlert(tracked, warning.isAfter(from) ? warning : from, Alert.EXPIRING);
+    } else {
+      scheduleAlert(tracked, change, Alert.CLOSED);
+    }
+  }
+
+  private void scheduleAlert(TrackedBalance tracked, Instant at, Alert alert) {
+    TimerWheel.Timeout[] timeout = new TimerWheel.Timeout[1];
+    timeout[0] = timers.schedule(at, () -> scheduler.execute(() -> {
+      if (tracked.alert == timeout[0]) {
+        onAlert(tracked, at, alert);
+      }
+    }));
+    tracked.alert = timeout[0];
+  }
+
+  private void onAlert(TrackedBalance tracked, Instant at, Alert alert) {
+    tracked.alert = null;
+    String subject = switch (alert) {
+      case OPENED -> "Claimable balance available: ";
+      case EXPIRING -> "Claim before " + tracked.windows.nextChange(at) + ": ";
+      case CLOSED -> "Claimable balance expired: ";
+    };
+    if (alert == Alert.EXPIRING) {
+      tracked.warnedExpiration = tracked.windows.nextChange(at);
+    }
+    delivery.accept(new Message(subject + tracked.amount(), tracked.describe()));
+    scheduleAlert(tracked, at);
+  }
+
+  private boolean isExcluded(ClaimableBalanceResponse balance) {
+    AssetDescriptor asset = AssetDescriptors.of(balance.getAsset());
+    return excludedAssets.contains(asset.code()) || excludedAssets.contains(asset.name());
+  }
+
+  private enum Alert {
+    OPENED, EXPIRING, CLOSED
+  }
+
+  private static final class TrackedBalance {
+
+    private final ClaimWindows windows;
+    private ClaimableBalanceResponse balance;
+    private TimerWheel.Timeout alert;
+    private Instant warnedExpiration;
+
+    private TrackedBalance(ClaimableBalanceResponse balance, ClaimWindows windows) {
+      this.balance = balance;
+      this.windows = windows;
+    }
+
+    String amount() {
+      return balance.getAmount() + " " + AssetDescriptors.of(balance.getAsset()).name();
+    }
+
+    String describe() {
+      return amount() + " (" + windows + ") " + balance.getId();
+    }
+
+    void cancelAlert() {
+      if (alert != null) {
+        alert.cancel();
+        alert = null;
+      }
+    }
+  }
+
+  private record ScanChanges(List<TrackedBalance> added, List<TrackedBalance> claimed) {
+
+    ScanChanges() {
+      this(new ArrayList<>(), new ArrayList<>());
+    }
+
+    boolean isEmpty() {
+      return added.isEmpty() && claimed.isEmpty();
+    }
+
+    Message toMessage() {
+      String subject = String.format("Claimable balances: %d new, %d claimed", added.size(), claimed.size());
+      StringBuilder body = new StringBuilder();
+      appendSection(body, "New claimable balances", added);
+      appendSection(body, "Claimed balances", claimed);
+      return new Message(subject, body.toString());
+    }
+
+    private static void appendSection(StringBuilder body, String title, List<TrackedBalance> balances) {
+      if (!balances.isEmpty()) {
+        body.append(title).append(":\n");
+        balances.forEach(tracked -> body.append("  ").append(tracked.describe()).append('\n'));
+        body.append('\n');
+      }
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.sputnik.stellar.filter;
+
+public enum Direction {
+  INCOMING, OUTGOING, ANY;
+
+  public boolean matches(boolean incoming) {
+    return this == ANY || (this == INCOMING) == incoming;
+  }
+}
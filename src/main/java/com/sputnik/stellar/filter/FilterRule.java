@@ -0,0 +1,55 @@
+package com.sputnik.stellar.filter;
+
+import com.sputnik.stellar.asset.AssetDescriptor;
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.message.OperationFacts;
+import java.util.Set;
+import org.stellar.sdk.Asset;
+
+/**
+ * Excludes the operations matching all its conditions. Null (or empty) conditions match any operation.
+ *
+ * @param types          Horizon operation types
+ * @param assets         asset codes ({@code XLM} for lumens) or {@code CODE:ISSUER} pairs
+ * @param direction      incoming or outgoing operations
+ * @param counterparties the other account of the operation
+ * @param minAmount      operations moving at least this amount, in stroops
+ * @param maxAmount      operations moving less than this amount, in stroops
+ */
+public record FilterRule(String name, Set<String> types, Set<String> assets, Direction direction, Set<String> counterparties,
+                         Long minAmount, Long maxAmount) {
+
+  public boolean matches(OperationFacts facts) {
+    return matchesType(facts) && matchesAsset(facts.asset()) && direction.matches(facts.incoming())
+      && (isEmpty(counterparties) || counterparties.contains(facts.counterparty())) && matchesAmount(facts);
+  }
+
+  private boolean matchesType(OperationFacts facts) {
+    return isEmpty(types) || types.contains(facts.type());
+  }
+
+  private boolean matchesAsset(Asset asset) {
+    if (isEmpty(assets)) {
+      return true;
+    } else if (asset == null) {
+      return false;
+    }
+
+    AssetDescriptor descriptor = AssetDescriptors.of(asset);
+    return assets.contains(descriptor.code()) || assets.contains(descriptor.name());
+  }
+
+  private boolean matchesAmount(OperationFacts facts) {
+    if (minAmount == null && maxAmount == null) {
+      return true;
+    } else if (!facts.hasAmount()) {
+      return false;
+    }
+
+    return (minAmount == null || facts.stroops() >= minAmount) && (maxAmount == null || facts.stroops() < maxAmount);
+  }
+
+  private static boolean isEmpty(Set<String> values) {
+    return values == null || values.isEmpty();
+  }
+}
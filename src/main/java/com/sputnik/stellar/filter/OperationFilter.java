@@ -0,0 +1,80 @@
+package com.sputnik.stellar.filter;
+
+import com.sputnik.stellar.asset.Stroops;
+import com.sputnik.stellar.message.OperationFacts;
+import com.sputnik.stellar.util.ConfigValues;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decides which operations are not notified, before their message is rendered. An operation is excluded by the first
+ * rule it matches, whose hit counter is incremented.
+ * <p>
+ * Rules are configured listing their names in {@code filter.rules} and their conditions in
+ * {@code filter.rule.<name>.types}, {@code .assets}, {@code .counterparties} (comma separated lists),
+ * {@code .direction} (incoming or outgoing), {@code .amount.min} and {@code .amount.max}. The assets in
+ * {@code excluded_tokens} are an additional rule.
+ */
+@Slf4j
+public class OperationFilter {
+
+  public static final String EXCLUDED_TOKENS_RULE = "excluded_tokens";
+
+  private final List<FilterRule> rules;
+  private final Map<String, LongAdder> hits = new LinkedHashMap<>();
+
+  public OperationFilter(List<FilterRule> rules) {
+    this.rules = List.copyOf(rules);
+    rules.forEach(rule -> hits.put(rule.name(), new LongAdder()));
+  }
+
+  public static OperationFilter fromConfig(UnaryOperator<String> config) {
+    List<FilterRule> rules = new ArrayList<>();
+    Set<String> excludedTokens = ConfigValues.parseSet(config.apply("excluded_tokens"));
+    if (!excludedTokens.isEmpty()) {
+      // excluded_tokens only ever excluded payments
+      rules.add(new FilterRule(EXCLUDED_TOKENS_RULE, Set.of("payment"), excludedTokens, Direction.ANY, null, null, null));
+    }
+
+    for (String name : ConfigValues.parseSet(config.apply("filter.rules"))) {
+      String prefix = "filter.rule." + name + ".";
+      FilterRule rule = new FilterRule(name,
+        ConfigValues.parseSet(config.apply(prefix + "types")),
+        ConfigValues.parseSet(config.apply(prefix + "assets")),
+        Optional.ofNullable(config.apply(prefix + "direction"))
+          .map(direction -> Direction.valueOf(direction.trim().toUpperCase(Locale.ROOT)))
+          .orElse(Direction.ANY),
+        ConfigValues.parseSet(config.apply(prefix + "counterparties")),
+        Optional.ofNullable(config.apply(prefix + "amount.min")).map(String::trim).map(Stroops::parse).orElse(null),
+        Optional.ofNullable(config.apply(prefix + "amount.max")).map(String::trim).map(Stroops::parse).orElse(null));
+      log.info("Filter rule {}: {}", name, rule);
+      rules.add(rule);
+    }
+
+    return new OperationFilter(rules);
+  }
+
+  public boolean isExcluded(OperationFacts facts) {
+    for (FilterRule rule : rules) {
+      if (rule.matches(facts)) {
+        hits.get(rule.name()).increment();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public Map<String, Long> getHitCounts() {
+    Map<String, Long> hitCounts = new LinkedHashMap<>();
+    hits.forEach((rule, count) -> hitCounts.put(rule, count.sum()));
+    return hitCounts;
+  }
+}
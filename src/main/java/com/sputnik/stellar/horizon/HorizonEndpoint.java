@@ -0,0 +1,98 @@
+package com.sputnik.stellar.horizon;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.stellar.sdk.Server;
+
+/**
+ * A Horizon server with the latency of its last requests and its health. After a failure the endpoint is unhealthy for a
+ * cool-down, doubled on every consecutive failure, and the first success makes it healthy again.
+ */
+public class HorizonEndpoint implements AutoCloseable {
+
+  private static final int LATENCY_SAMPLES = 100;
+  private static final int MIN_P95_SAMPLES = 20;
+  private static final double SMOOTHING = 0.2;
+  private static final long INITIAL_COOL_DOWN_NANOS = TimeUnit.SECONDS.toNanos(5);
+  private static final long MAX_COOL_DOWN_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+  private final String url;
+  private final Server server;
+  private final long[] latencies = new long[LATENCY_SAMPLES];
+  private int samples;
+  private double averageNanos;
+  private int consecutiveFailures;
+  private long unhealthyUntil;
+  private volatile long latestLedger;
+
+  public HorizonEndpoint(String url) {
+    this.url = url;
+    this.server = new Server(url);
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public Server getServer() {
+    return server;
+  }
+
+  public long getLatestLedger() {
+    return latestLedger;
+  }
+
+  synchronized void recordSuccess(long latencyNanos) {
+    latencies[samples++ % LATENCY_SAMPLES] = latencyNanos;
+    averageNanos = samples == 1 ? latencyNanos : averageNanos + SMOOTHING * (latencyNanos - averageNanos);
+    consecutiveFailures = 0;
+  }
+
+  /**
+   * @return the consecutive failures, this one included
+   */
+  synchronized int recordFailure() {
+    consecutiveFailures++;
+    long coolDown = Math.min(MAX_COOL_DOWN_NANOS, INITIAL_COOL_DOWN_NANOS << Math.min(consecutiveFailures - 1, 10));
+    unhealthyUntil = System.nanoTime() + coolDown;
+    return consecutiveFailures;
+  }
+
+  void recordLedger(long ledger) {
+    latestLedger = ledger;
+  }
+
+  public synchronized boolean isHealthy() {
+    return consecutiveFailures == 0 || System.nanoTime() - unhealthyUntil >= 0;
+  }
+
+  /**
+   * @return the smoothed latency of the last requests, 0 before the first one
+   */
+  public synchronized long averageNanos() {
+    return (long) averageNanos;
+  }
+
+  /**
+   * @return the 95th percentile of the latency of the last requests, -1 while there are too few of them
+   */
+  public synchronized long p95Nanos() {
+    int count = Math.min(samples, LATENCY_SAMPLES);
+    if (count < MIN_P95_SAMPLES) {
+      return -1;
+    }
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    return sorted[(int) Math.ceil(0.95 * count) - 1];
+  }
+
+  @Override
+  public void close() {
+    server.close();
+  }
+
+  @Override
+  public String toString() {
+    return url;
+  }
+}
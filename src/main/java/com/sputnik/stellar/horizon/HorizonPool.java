@@ -0,0 +1,247 @@
+package com.sputnik.stellar.horizon;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.Server;
+import org.stellar.sdk.exception.BadRequestException;
+import org.stellar.sdk.responses.RootResponse;
+
+/**
+ * The Horizon servers the notifier can use, ranked by health and latency: healthy endpoints not lagging behind the
+ * others first, the fastest of them first. With several endpoints they are probed periodically (asking for the root
+ * resource), so the idle ones are measured too and the ones behind the latest ledger are left out.
+ * <p>
+ * REST requests are hedged: when the best endpoint hasn't answered after its 95th percentile latency, the request is also
+ * sent to the next one and the first answer wins. A failed request is retried on the next endpoints, but not a rejected
+ * one (a 4xx response), which the others would reject too.
+ */
+@Slf4j
+public class HorizonPool implements AutoCloseable {
+
+  public static final String DEFAULT_URL = "https://horizon.stellar.org";
+  private static final long DEFAULT_HEDGE_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final List<HorizonEndpoint> endpoints;
+  private final long maxLedgerLag;
+  private final boolean hedging;
+  private final ExecutorService requests = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "horizon-request");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ScheduledExecutorService prober;
+  private final LongAdder hedgedRequests = new LongAdder();
+
+  /**
+   * @param probeInterval time between probes of the endpoints
+   * @param maxLedgerLag  ledgers an endpoint can be behind the most advanced one before being left out
+   */
+  public HorizonPool(List<String> urls, Duration probeInterval, long maxLedgerLag, boolean hedging) {
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("No Horizon URL");
+    }
+    this.endpoints = urls.stream().map(HorizonEndpoint::new).toList();
+    this.maxLedgerLag = maxLedgerLag;
+    this.hedging = hedging;
+    if (endpoints.size() > 1) {
+      prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "horizon-prober");
+        thread.setDaemon(true);
+        return thread;
+      });
+      prober.scheduleWithFixedDelay(this::probe, 0, probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    } else {
+      prober = null;
+    }
+  }
+
+  public static HorizonPool fromConfig(UnaryOperator<String> config) {
+    String configuredUrls = Optional.ofNullable(config.apply("horizon.urls")).orElse(config.apply("horizon.url"));
+    List<String> urls = Optional.ofNullable(configuredUrls)
+      .map(value -> Arrays.stream(value.split(",")).map(String::trim).filter(url -> !url.isEmpty()).distinct().toList())
+      .filter(list -> !list.isEmpty())
+      .orElse(List.of(DEFAULT_URL));
+    Duration probeInterval = Duration.ofSeconds(
+      Optional.ofNullable(config.apply("horizon.probe.seconds")).map(String::trim).map(Long::parseLong).orElse(30L));
+    long maxLedgerLag = Optional.ofNullable(config.apply("horizon.max.ledger.lag")).map(String::trim).map(Long::parseLong)
+      .orElse(5L);
+    boolean hedging = !"false".equalsIgnoreCase(config.apply("horizon.hedge.enabled"));
+    log.info("Horizon endpoints: {}", urls);
+
+    return new HorizonPool(urls, probeInterval, maxLedgerLag, hedging);
+  }
+
+  public List<HorizonEndpoint> getEndpoints() {
+    return endpoints;
+  }
+
+  public long getHedgedRequests() {
+    return hedgedRequests.sum();
+  }
+
+  /**
+   * @return the endpoints from best to worst
+   */
+  public List<HorizonEndpoint> ranked() {
+    if (endpoints.size() == 1) {
+      return endpoints;
+    }
+    // the scores are taken once, they change while sorting
+    long newestLedger = endpoints.stream().mapToLong(HorizonEndpoint::getLatestLedger).max().orElse(0);
+    return endpoints.stream()
+      .map(endpoint -> new Score(endpoint, isUsable(endpoint, newestLedger), endpoint.averageNanos()))
+      .sorted(Comparator.comparing((Score score) -> !score.usable()).thenComparingLong(Score::averageNanos))
+      .map(Score::endpoint)
+      .toList();
+  }
+
+  public HorizonEndpoint best() {
+    return ranked().get(0);
+  }
+
+  /**
+   * @return whether the endpoint is healthy and up to date with the others
+   */
+  public boolean isUsable(HorizonEndpoint endpoint) {
+    return isUsable(endpoint, endpoints.stream().mapToLong(HorizonEndpoint::getLatestLedger).max().orElse(0));
+  }
+
+  /**
+   * Takes note of a failure of the endpoint outside of {@link #call}, like a broken stream.
+   */
+  public void reportFailure(HorizonEndpoint endpoint, String reason) {
+    if (endpoint.recordFailure() == 1) {
+      log.warn("Horizon {} failed, avoiding it for a while: {}", endpoint, reason);
+    }
+  }
+
+  /**
+   * Sends a REST request to the best endpoint, hedging it with the next one when it takes too long, and retrying it on
+   * the next ones when it fails.
+   *
+   * @throws RuntimeException the error of the last endpoint tried
+   */
+  public <T> T call(Function<Server, T> request) {
+    List<HorizonEndpoint> ranked = ranked();
+    if (ranked.size() == 1) {
+      return attempt(ranked.get(0), request);
+    }
+
+    CompletionService<T> attempts = new ExecutorCompletionService<>(requests);
+    List<Future<T>> started = new ArrayList<>();
+    started.add(attempts.submit(() -> attempt(ranked.get(0), request)));
+    int running = 1;
+    boolean hedged = !hedging;
+    try {
+      while (true) {
+        Future<T> done;
+        if (!hedged && started.size() < ranked.size()) {
+          done = attempts.poll(hedgeDelayNanos(ranked.get(0)), TimeUnit.NANOSECONDS);
+          if (done == null) {
+            hedged = true;
+            hedgedRequests.increment();
+            HorizonEndpoint hedge = ranked.get(started.size());
+            started.add(attempts.submit(() -> attempt(hedge, request)));
+            running++;
+            continue;
+          }
+        } else {
+          done = attempts.take();
+        }
+
+        running--;
+        try {
+          return done.get();
+        } catch (ExecutionException e) {
+          if (!(e.getCause() instanceof RuntimeException failure)) {
+            throw new IllegalStateException(e.getCause());
+          }
+          if (failure instanceof BadRequestException || (running == 0 && started.size() == ranked.size())) {
+            throw failure;
+          }
+          if (running == 0) {
+            HorizonEndpoint next = ranked.get(started.size());
+            started.add(attempts.submit(() -> attempt(next, request)));
+            running++;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for Horizon", e);
+    } finally {
+      // the slower requests in flight are left to finish, their latency counts
+      started.forEach(attempt -> attempt.cancel(false));
+    }
+  }
+
+  @Override
+  public void close() {
+    if (prober != null) {
+      prober.shutdownNow();
+    }
+    requests.shutdownNow();
+    endpoints.forEach(HorizonEndpoint::close);
+  }
+
+  private boolean isUsable(HorizonEndpoint endpoint, long newestLedger) {
+    return endpoint.isHealthy() && newestLedger - endpoint.getLatestLedger() <= maxLedgerLag;
+  }
+
+  private long hedgeDelayNanos(HorizonEndpoint endpoint) {
+    long p95 = endpoint.p95Nanos();
+    return p95 < 0 ? DEFAULT_HEDGE_DELAY_NANOS : Math.max(MIN_HEDGE_DELAY_NANOS, p95);
+  }
+
+  private <T> T attempt(HorizonEndpoint endpoint, Function<Server, T> request) {
+    long start = System.nanoTime();
+    try {
+      T result = request.apply(endpoint.getServer());
+      endpoint.recordSuccess(System.nanoTime() - start);
+      return result;
+    } catch (BadRequestException e) {
+      // the endpoint is fine, the request is not
+      endpoint.recordSuccess(System.nanoTime() - start);
+      throw e;
+    } catch (RuntimeException e) {
+      reportFailure(endpoint, e.getMessage());
+      throw e;
+    }
+  }
+
+  private void probe() {
+    for (HorizonEndpoint endpoint : endpoints) {
+      requests.execute(() -> {
+        try {
+          RootResponse root = attempt(endpoint, server -> server.root().execute());
+          if (root.getHistoryLatestLedger() != null) {
+            endpoint.recordLedger(root.getHistoryLatestLedger());
+          }
+        } catch (RuntimeException e) {
+          log.debug("Error probing Horizon {}: {}", endpoint, e.getMessage());
+        }
+      });
+    }
+  }
+
+  private record Score(HorizonEndpoint endpoint, boolean usable, long averageNanos) {
+
+  }
+}
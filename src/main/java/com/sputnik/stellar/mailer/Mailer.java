@@ -1,20 +1,44 @@
 package com.sputnik.stellar.mailer;
 
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
+import javax.mail.SendFailedException;
 import javax.mail.Session;
 import javax.mail.Transport;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends messages through a small pool of connected {@link Transport}s, so the SMTP handshake (and STARTTLS and
+ * authentication) is paid once per connection instead of once per message.
+ */
+@Slf4j
+public class Mailer implements AutoCloseable {
+    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final int DEFAULT_MAX_MESSAGES_PER_CONNECTION = 100;
 
-public class Mailer {
     @Getter
     protected final Session session;
+    private final BlockingQueue<PooledTransport> pool;
+    private final List<PooledTransport> transports = new ArrayList<>();
+    private final long maxIdleMillis;
+    private final int maxMessagesPerConnection;
 
     public Mailer(Properties mailConfiguration, String username, String password) {
+        this(mailConfiguration, username, password, DEFAULT_POOL_SIZE, DEFAULT_MAX_IDLE_MILLIS, DEFAULT_MAX_MESSAGES_PER_CONNECTION);
+    }
 
+    public Mailer(Properties mailConfiguration, String username, String password, int poolSize, long maxIdleMillis,
+                  int maxMessagesPerConnection) {
         session = Session.getInstance(mailConfiguration,
                 new javax.mail.Authenticator() {
                     @Override
@@ -22,9 +46,93 @@ public class Mailer {
                         return new PasswordAuthentication(username, password);
                     }
                 });
+
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        pool = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            PooledTransport transport = new PooledTransport();
+            transports.add(transport);
+            pool.add(transport);
+        }
     }
 
     public void send(Message msg) throws MessagingException {
-        Transport.send(msg);
+        msg.saveChanges();
+        PooledTransport transport = borrow();
+        try {
+            transport.send(msg);
+        } finally {
+            pool.add(transport);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PooledTransport transport : transports) {
+            transport.disconnect();
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            return pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+    }
+
+    private class PooledTransport {
+        private Transport transport;
+        private long lastUsed;
+        private int sentMessages;
+
+        void send(Message msg) throws MessagingException {
+            ensureConnected();
+            try {
+                transport.sendMessage(msg, msg.getAllRecipients());
+            } catch (SendFailedException e) {
+                // rejected recipients, the connection itself is fine
+                throw e;
+            } catch (MessagingException e) {
+                // the server may have accepted the message before failing, so it's not sent again here: the
+                // connection is dropped and the caller's retries decide
+                log.debug("SMTP connection failed, discarding it: {}", e.getMessage());
+                disconnect();
+                throw e;
+            }
+
+            lastUsed = System.currentTimeMillis();
+            sentMessages++;
+        }
+
+        private void ensureConnected() throws MessagingException {
+            if (transport != null) {
+                boolean recycle = sentMessages >= maxMessagesPerConnection;
+                // isConnected() sends a NOOP to check connections that may have been dropped by the server while idle
+                boolean idle = System.currentTimeMillis() - lastUsed > maxIdleMillis;
+                if (recycle || (idle && !transport.isConnected())) {
+                    disconnect();
+                }
+            }
+
+            if (transport == null) {
+                transport = session.getTransport();
+                transport.connect();
+                sentMessages = 0;
+            }
+        }
+
+        void disconnect() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("Error closing SMTP connection: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
     }
 }
@@ -0,0 +1,217 @@
+package com.sputnik.stellar.message;
+
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.asset.Stroops;
+import com.sputnik.stellar.outbox.Outbox;
+import com.sputnik.stellar.outbox.OutboxEntry;
+import com.sputnik.stellar.util.ConfigValues;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.AssetTypeNative;
+
+/**
+ * Buffers messages for a time window (or until a number of them are buffered) and delivers them as a single summary
+ * message, grouped by operation type and asset. High priority messages and messages for amounts over the immediate
+ * threshold of their asset are delivered straight away.
+ * <p>
+ * Configured with {@code digest.window.seconds}, {@code digest.max.messages}, and the assets listed in
+ * {@code digest.immediate.assets} (codes, {@code XLM} for lumens, or {@code CODE:ISSUER} pairs) with their thresholds in
+ * {@code digest.immediate.amount.<asset>}.
+ * <p>
+ * With a journal, buffered messages are written to it before {@link #add} returns and marked delivered once their
+ * summary has been delivered, so the messages of a digest window survive a crash and are summarized after the restart.
+ */
+@Slf4j
+public class DigestAggregator implements AutoCloseable {
+
+  private final Duration window;
+  private final int maxMessages;
+  private final Map<String, Long> immediateAmounts;
+  private final Consumer<Message> delivery;
+  private final Outbox journal;
+  private final ScheduledExecutorService scheduler;
+  private List<Message> buffer = new ArrayList<>();
+  private List<OutboxEntry> journaled = new ArrayList<>();
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * @param immediateAmounts threshold in stroops by asset name ({@code lumens} or {@code CODE:ISSUER}) or code, empty
+   *                         to only deliver high priority messages straight away
+   * @param journal          outbox with a single sink where the buffered messages are kept, closed with the
+   *                         aggregator, null to only keep them in memory
+   */
+  public DigestAggregator(Duration window, int maxMessages, Map<String, Long> immediateAmounts,
+    Consumer<Message> delivery, Outbox journal) {
+    this.window = window;
+    this.maxMessages = maxMessages;
+    this.immediateAmounts = Map.copyOf(immediateAmounts);
+    this.delivery = delivery;
+    this.journal = journal;
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "digest");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (journal != null && journal.pendingCount() > 0) {
+      for (OutboxEntry entry : journal.pending()) {
+        buffer.add(entry.message());
+        journaled.add(entry);
+      }
+      scheduledFlush = scheduler.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public static DigestAggregator fromConfig(UnaryOperator<String> config, Consumer<Message> delivery, Outbox journal) {
+    Duration window = Duration.ofSeconds(Optional.ofNullable(config.apply("digest.window.seconds")).map(String::trim)
+      .map(Long::parseLong).orElse(60L));
+    int maxMessages = Optional.ofNullable(config.apply("digest.max.messages")).map(String::trim).map(Integer::parseInt)
+      .orElse(50);
+    Map<String, Long> immediateAmounts = new HashMap<>();
+    for (String asset : ConfigValues.parseSet(config.apply("digest.immediate.assets"))) {
+      String key = "digest.immediate.amount." + asset;
+      long amount = Optional.ofNullable(config.apply(key)).map(String::trim).map(Stroops::parse)
+        .orElseThrow(() -> new IllegalArgumentException(key + " is not set"));
+      immediateAmounts.put("XLM".equals(asset) ? AssetDescriptors.of(new AssetTypeNative()).name() : asset, amount);
+    }
+
+    return new DigestAggregator(window, maxMessages, immediateAmounts, delivery, journal);
+  }
+
+  public void add(Message message) {
+    if (isImmediate(message)) {
+      delivery.accept(message);
+      return;
+    }
+
+    Digest full = null;
+    synchronized (this) {
+      buffer.add(message);
+      if (journal != null) {
+        journaled.add(journal.append(message));
+      }
+      if (buffer.size() >= maxMessages) {
+        full = drain();
+      } else if (scheduledFlush == null) {
+        scheduledFlush = scheduler.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+
+    if (full != null) {
+      deliver(full);
+    }
+  }
+
+  public void flush() {
+    Digest digest;
+    synchronized (this) {
+      digest = drain();
+    }
+    deliver(digest);
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    flush();
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  private Digest drain() {
+    Digest digest = new Digest(buffer, journaled);
+    buffer = new ArrayList<>();
+    journaled = new ArrayList<>();
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    return digest;
+  }
+
+  private void deliver(Digest digest) {
+    List<Message> messages = digest.messages();
+    try {
+      if (messages.size() == 1) {
+        delivery.accept(messages.get(0));
+      } else if (!messages.isEmpty()) {
+        delivery.accept(summarize(messages));
+      }
+    } catch (Exception e) {
+      // left in the journal, summarized again after a restart
+      log.error("Error delivering digest of {} messages", messages.size(), e);
+      return;
+    }
+    if (journal != null) {
+      digest.entries().forEach(entry -> journal.markDelivered(entry, 0));
+    }
+  }
+
+  /**
+   * @return a single message counting the messages by operation type and asset, with their total amounts
+   */
+  public static Message summarize(List<Message> messages) {
+    Map<String, Group> groups = new TreeMap<>();
+    for (Message message : messages) {
+      String type = message.type() != null ? message.type() : "other";
+      String key = message.asset() != null ? type + " " + message.asset() : type;
+      groups.computeIfAbsent(key, k -> new Group()).add(message.amount());
+    }
+
+    StringBuilder body = new StringBuilder();
+    body.append(messages.size()).append(" operations received:").append(System.lineSeparator());
+    groups.forEach((key, group) -> {
+      body.append(" - ").append(key).append(": ").append(group.count).append(" operations");
+      if (group.total != Stroops.NONE) {
+        body.append(", total amount ").append(Stroops.format(group.total));
+      }
+      body.append(System.lineSeparator());
+    });
+
+    return new Message("Stellar digest: " + messages.size() + " operations", body.toString());
+  }
+
+  private boolean isImmediate(Message message) {
+    if (message.priority() == Priority.HIGH) {
+      return true;
+    } else if (message.asset() == null || immediateAmounts.isEmpty()) {
+      return false;
+    }
+
+    Long immediateAmount = immediateAmounts.get(message.asset());
+    int separator = message.asset().indexOf(':');
+    if (immediateAmount == null && separator > 0) {
+      immediateAmount = immediateAmounts.get(message.asset().substring(0, separator));
+    }
+    return immediateAmount != null && Stroops.parseOrNone(message.amount()) >= immediateAmount;
+  }
+
+  private record Digest(List<Message> messages, List<OutboxEntry> entries) {
+  }
+
+  private static class Group {
+
+    private int count;
+    private long total = Stroops.NONE;
+
+    void add(String amount) {
+      count++;
+      long stroops = Stroops.parseOrNone(amount);
+      if (stroops != Stroops.NONE) {
+        total = total == Stroops.NONE ? stroops : Stroops.add(total, stroops);
+      }
+    }
+  }
+}
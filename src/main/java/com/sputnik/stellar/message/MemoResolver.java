@@ -0,0 +1,17 @@
+package com.sputnik.stellar.message;
+
+import org.stellar.sdk.Memo;
+
+/**
+ * Memo of the transactions whose operations don't come with their transaction embedded.
+ */
+@FunctionalInterface
+public interface MemoResolver {
+
+  MemoResolver NONE = transactionHash -> null;
+
+  /**
+   * @return the memo of the transaction, null if it's unknown
+   */
+  Memo memoOf(String transactionHash);
+}
@@ -1,5 +1,24 @@
 package com.sputnik.stellar.message;
 
-public record Message(String subject, String body) {
+/**
+ * @param operationId id of the notified operation, null for messages not about a single operation (digests, alerts)
+ * @param type        Horizon operation type
+ * @param asset       name of the moved asset, null if the operation doesn't move funds
+ * @param amount      moved amount, null if the operation doesn't move funds
+ * @param priority    lane of the message in the sink queues
+ */
+public record Message(String subject, String body, Long operationId, String type, String asset, String amount,
+                      Priority priority) {
 
+  public Message(String subject, String body) {
+    this(subject, body, null, null, null, null, Priority.NORMAL);
+  }
+
+  public Message withOperation(Long operationId, String type, String asset, String amount) {
+    return new Message(subject, body, operationId, type, asset, amount, priority);
+  }
+
+  public Message withPriority(Priority priority) {
+    return new Message(subject, body, operationId, type, asset, amount, priority);
+  }
 }
@@ -0,0 +1,64 @@
+package com.sputnik.stellar.message;
+
+import com.sputnik.stellar.asset.Stroops;
+import org.stellar.sdk.Asset;
+import org.stellar.sdk.AssetTypeNative;
+import org.stellar.sdk.responses.operations.AccountMergeOperationResponse;
+import org.stellar.sdk.responses.operations.ClawbackOperationResponse;
+import org.stellar.sdk.responses.operations.CreateAccountOperationResponse;
+import org.stellar.sdk.responses.operations.CreateClaimableBalanceOperationResponse;
+import org.stellar.sdk.responses.operations.OperationResponse;
+import org.stellar.sdk.responses.operations.PathPaymentBaseOperationResponse;
+import org.stellar.sdk.responses.operations.PaymentOperationResponse;
+
+/**
+ * The fields of an operation that matter to decide how to notify it, seen from the monitored account.
+ *
+ * @param type         Horizon operation type (payment, create_account...)
+ * @param asset        moved asset, null if the operation doesn't move funds
+ * @param amount       moved amount, null if the operation doesn't move funds
+ * @param stroops      moved amount parsed, {@link Stroops#NONE} if the operation doesn't move funds
+ * @param counterparty the other account involved
+ * @param incoming     true if the funds (or the operation) come from another account
+ */
+public record OperationFacts(String type, Asset asset, String amount, long stroops, String counterparty, boolean incoming) {
+
+  public OperationFacts(String type, Asset asset, String amount, String counterparty, boolean incoming) {
+    this(type, asset, amount, Stroops.parseOrNone(amount), counterparty, incoming);
+  }
+
+  public boolean hasAmount() {
+    return stroops != Stroops.NONE;
+  }
+
+  public static OperationFacts of(OperationResponse operation, String accountId) {
+    OperationFacts facts;
+    if (operation instanceof PaymentOperationResponse payment) {
+      boolean incoming = accountId.equals(payment.getTo());
+      facts = new OperationFacts(operation.getType(), payment.getAsset(), payment.getAmount(),
+        incoming ? payment.getFrom() : payment.getTo(), incoming);
+    } else if (operation instanceof PathPaymentBaseOperationResponse pathPayment) {
+      boolean incoming = accountId.equals(pathPayment.getTo());
+      facts = new OperationFacts(operation.getType(), pathPayment.getAsset(), pathPayment.getAmount(),
+        incoming ? pathPayment.getFrom() : pathPayment.getTo(), incoming);
+    } else if (operation instanceof CreateAccountOperationResponse createAccount) {
+      boolean incoming = accountId.equals(createAccount.getAccount());
+      facts = new OperationFacts(operation.getType(), new AssetTypeNative(), createAccount.getStartingBalance(),
+        incoming ? createAccount.getFunder() : createAccount.getAccount(), incoming);
+    } else if (operation instanceof AccountMergeOperationResponse accountMerge) {
+      boolean incoming = accountId.equals(accountMerge.getInto());
+      facts = new OperationFacts(operation.getType(), null, null,
+        incoming ? accountMerge.getAccount() : accountMerge.getInto(), incoming);
+    } else if (operation instanceof CreateClaimableBalanceOperationResponse createClaimableBalance) {
+      facts = new OperationFacts(operation.getType(), createClaimableBalance.getAsset(), createClaimableBalance.getAmount(),
+        operation.getSourceAccount(), !accountId.equals(operation.getSourceAccount()));
+    } else if (operation instanceof ClawbackOperationResponse clawback) {
+      facts = new OperationFacts(operation.getType(), clawback.getAsset(), clawback.getAmount(), operation.getSourceAccount(), false);
+    } else {
+      facts = new OperationFacts(operation.getType(), null, null, operation.getSourceAccount(),
+        !accountId.equals(operation.getSourceAccount()));
+    }
+
+    return facts;
+  }
+}
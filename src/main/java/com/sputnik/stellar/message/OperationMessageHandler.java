@@ -0,0 +1,15 @@
+package com.sputnik.stellar.message;
+
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Renders the notification of one operation type.
+ */
+@FunctionalInterface
+public interface OperationMessageHandler<T extends OperationResponse> {
+
+  /**
+   * @return the message, or null if the operation must not be notified
+   */
+  Message createMessage(T operation, String accountId);
+}
@@ -0,0 +1,12 @@
+package com.sputnik.stellar.message;
+
+/**
+ * Service provider interface to add message handlers, or override the built-in ones, without changing
+ * {@link PaymentOperationMessagesCreator}. Implementations are discovered with {@link java.util.ServiceLoader}, listing
+ * them in {@code META-INF/services/com.sputnik.stellar.message.OperationMessageHandlerProvider}, and are registered after
+ * the built-in handlers.
+ */
+public interface OperationMessageHandlerProvider {
+
+  void registerHandlers(OperationMessageHandlerRegistry registry);
+}
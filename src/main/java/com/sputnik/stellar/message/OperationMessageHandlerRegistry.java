@@ -0,0 +1,60 @@
+package com.sputnik.stellar.message;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Message handlers keyed by operation class. The handler of a class is its own registered handler or the one of its
+ * closest registered superclass, or the fallback handler if there is none. The resolution is done once per class and
+ * cached in a {@link ClassValue}, so handlers have to be registered before the first lookup.
+ */
+public class OperationMessageHandlerRegistry {
+
+  private final Map<Class<?>, OperationMessageHandler<?>> handlers = new HashMap<>();
+  private final OperationMessageHandler<OperationResponse> fallback;
+  private volatile boolean frozen = false;
+
+  private final ClassValue<OperationMessageHandler<OperationResponse>> resolvedHandlers = new ClassValue<>() {
+    @Override
+    protected OperationMessageHandler<OperationResponse> computeValue(Class<?> type) {
+      return resolve(type);
+    }
+  };
+
+  public OperationMessageHandlerRegistry(OperationMessageHandler<OperationResponse> fallback) {
+    this.fallback = fallback;
+  }
+
+  /**
+   * Registers the handler for the given type and its subclasses, replacing any handler previously registered for it.
+   */
+  public synchronized <T extends OperationResponse> void register(Class<T> type, OperationMessageHandler<? super T> handler) {
+    if (frozen) {
+      throw new IllegalStateException("Handlers can't be registered after the registry has been used");
+    }
+    handlers.put(type, handler);
+  }
+
+  public OperationMessageHandler<OperationResponse> handlerFor(Class<? extends OperationResponse> type) {
+    if (!frozen) {
+      freeze();
+    }
+    return resolvedHandlers.get(type);
+  }
+
+  private synchronized void freeze() {
+    frozen = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private synchronized OperationMessageHandler<OperationResponse> resolve(Class<?> type) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      OperationMessageHandler<?> handler = handlers.get(current);
+      if (handler != null) {
+        return (OperationMessageHandler<OperationResponse>) handler;
+      }
+    }
+    return fallback;
+  }
+}
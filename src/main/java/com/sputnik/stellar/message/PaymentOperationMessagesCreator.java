@@ -1,18 +1,21 @@
 package com.sputnik.stellar.message;
 
+import com.sputnik.stellar.asset.AssetDescriptors;
+import com.sputnik.stellar.message.template.MessageTemplates;
+import com.sputnik.stellar.message.template.OperationTemplate;
 import java.time.Instant;
-import java.util.Date;
-import java.util.List;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.ServiceLoader;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.stellar.sdk.Asset;
-import org.stellar.sdk.AssetTypeCreditAlphaNum;
-import org.stellar.sdk.AssetTypeNative;
 import org.stellar.sdk.Memo;
+import org.stellar.sdk.MemoHash;
+import org.stellar.sdk.MemoId;
+import org.stellar.sdk.MemoReturnHash;
 import org.stellar.sdk.MemoText;
-import org.stellar.sdk.responses.AssetAmount;
-import org.stellar.sdk.responses.Claimant;
-import org.stellar.sdk.responses.Price;
 import org.stellar.sdk.responses.operations.AccountMergeOperationResponse;
 import org.stellar.sdk.responses.operations.BeginSponsoringFutureReservesOperationResponse;
 import org.stellar.sdk.responses.operations.BumpSequenceOperationResponse;
@@ -27,8 +30,6 @@ import org.stellar.sdk.responses.operations.EndSponsoringFutureReservesOperation
 import org.stellar.sdk.responses.operations.ExtendFootprintTTLOperationResponse;
 import org.stellar.sdk.responses.operations.InflationOperationResponse;
 import org.stellar.sdk.responses.operations.InvokeHostFunctionOperationResponse;
-import org.stellar.sdk.responses.operations.InvokeHostFunctionOperationResponse.AssetContractBalanceChange;
-import org.stellar.sdk.responses.operations.InvokeHostFunctionOperationResponse.HostFunctionParameter;
 import org.stellar.sdk.responses.operations.LiquidityPoolDepositOperationResponse;
 import org.stellar.sdk.responses.operations.LiquidityPoolWithdrawOperationResponse;
 import org.stellar.sdk.responses.operations.ManageBuyOfferOperationResponse;
@@ -46,326 +47,267 @@ import org.stellar.sdk.responses.operations.SetTrustLineFlagsOperationResponse;
 
 public class PaymentOperationMessagesCreator {
 
-  private final List<String> excludedTokens;
-
-  public PaymentOperationMessagesCreator(List<String> excludedTokens) {
-    this.excludedTokens = excludedTokens;
+  // same format as the %tc conversion of String.format
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy",
+    Locale.getDefault(Locale.Category.FORMAT))
+    .withZone(ZoneId.systemDefault());
+
+  private final OperationMessageHandlerRegistry handlers;
+  private final MemoResolver memos;
+  private final OperationTemplate accountMergeTemplate;
+  private final OperationTemplate beginSponsoringFutureReservesTemplate;
+  private final OperationTemplate bumpSequenceTemplate;
+  private final OperationTemplate changeTrustTemplate;
+  private final OperationTemplate claimClaimableBalanceTemplate;
+  private final OperationTemplate clawbackTemplate;
+  private final OperationTemplate clawbackClaimableBalanceTemplate;
+  private final OperationTemplate createAccountTemplate;
+  private final OperationTemplate createClaimableBalanceTemplate;
+  private final OperationTemplate createPassiveSellOfferTemplate;
+  private final OperationTemplate endSponsoringFutureReservesTemplate;
+  private final OperationTemplate extendFootprintTTLTemplate;
+  private final OperationTemplate invokeHostFunctionTemplate;
+  private final OperationTemplate liquidityPoolDepositTemplate;
+  private final OperationTemplate liquidityPoolWithdrawTemplate;
+  private final OperationTemplate manageBuyOfferTemplate;
+  private final OperationTemplate manageDataTemplate;
+  private final OperationTemplate manageSellOfferTemplate;
+  private final OperationTemplate pathPaymentTemplate;
+  private final OperationTemplate pathPaymentBaseTemplate;
+  private final OperationTemplate paymentReceivedTemplate;
+  private final OperationTemplate paymentSentTemplate;
+  private final OperationTemplate restoreFootprintTemplate;
+  private final OperationTemplate revokeSponsorshipTemplate;
+  private final OperationTemplate setOptionsTemplate;
+  private final OperationTemplate setTrustLineFlagsTemplate;
+  private final OperationTemplate unknownOperationTemplate;
+
+  public PaymentOperationMessagesCreator() {
+    this(MessageTemplates.defaults());
+  }
+
+  public PaymentOperationMessagesCreator(MessageTemplates templates) {
+    this(templates, MemoResolver.NONE);
+  }
+
+  /**
+   * @param memos memos of the operations received without their transaction
+   */
+  public PaymentOperationMessagesCreator(MessageTemplates templates, MemoResolver memos) {
+    this.memos = memos;
+    accountMergeTemplate = templates.compile("account_merge", "account", "into");
+    beginSponsoringFutureReservesTemplate = templates.compile("begin_sponsoring_future_reserves", "sponsoredId");
+    bumpSequenceTemplate = templates.compile("bump_sequence", "bumpTo");
+    changeTrustTemplate = templates.compile("change_trust", "trustor", "trustee", "asset", "limit");
+    claimClaimableBalanceTemplate = templates.compile("claim_claimable_balance", "balanceId", "claimant");
+    clawbackTemplate = templates.compile("clawback", "asset", "amount", "from", "assetHomeDomain");
+    clawbackClaimableBalanceTemplate = templates.compile("clawback_claimable_balance", "balanceId");
+    createAccountTemplate = templates.compile("create_account", "account", "funder", "startingBalance");
+    createClaimableBalanceTemplate = templates.compile("create_claimable_balance", "asset", "amount", "claimants",
+      "assetHomeDomain");
+    createPassiveSellOfferTemplate = templates.compile("create_passive_sell_offer", "amount", "buyingAsset", "price", "sellingAsset",
+      "offerId");
+    endSponsoringFutureReservesTemplate = templates.compile("end_sponsoring_future_reserves", "beginSponsor");
+    extendFootprintTTLTemplate = templates.compile("extend_footprint_ttl", "extendTo");
+    invokeHostFunctionTemplate = templates.compile("invoke_host_function", "function", "parameters", "address", "salt",
+      "assetBalanceChanges");
+    liquidityPoolDepositTemplate = templates.compile("liquidity_pool_deposit", "liquidityPoolId", "reservesMax", "maxPrice", "minPrice",
+      "maxPriceR", "minPriceR", "reservesDeposited", "sharesReceived");
+    liquidityPoolWithdrawTemplate = templates.compile("liquidity_pool_withdraw", "liquidityPoolId", "reservesMin", "reservesReceived",
+      "shares");
+    manageBuyOfferTemplate = templates.compile("manage_buy_offer", "offerId", "buyingAsset", "amount", "sellingAsset", "price");
+    manageDataTemplate = templates.compile("manage_data", "name", "value");
+    manageSellOfferTemplate = templates.compile("manage_sell_offer", "amount", "buyingAsset", "price", "sellingAsset", "offerId");
+    pathPaymentTemplate = templates.compile("path_payment", "amount", "asset", "from", "to", "assetHomeDomain");
+    pathPaymentBaseTemplate = templates.compile("path_payment_base", "asset", "from", "to", "amount", "sourceAmount", "sourceAsset",
+      "path", "assetHomeDomain");
+    paymentReceivedTemplate = templates.compile("payment.received", "amount", "asset", "from", "to", "date", "memo",
+      "assetHomeDomain");
+    paymentSentTemplate = templates.compile("payment.sent", "amount", "asset", "from", "to", "date", "memo", "assetHomeDomain");
+    restoreFootprintTemplate = templates.compile("restore_footprint");
+    revokeSponsorshipTemplate = templates.compile("revoke_sponsorship", "accountId", "claimableBalanceId", "dataAccountId", "dataName",
+      "offerId", "trustlineAccountId", "trustlineAsset", "signerAccountId", "signerKey");
+    setOptionsTemplate = templates.compile("set_options", "clearFlags", "highThreshold", "homeDomain", "inflationDestination",
+      "lowThreshold", "masterKeyWeight", "medThreshold", "setFlags", "signer", "signerWeight");
+    setTrustLineFlagsTemplate = templates.compile("set_trust_line_flags", "asset", "trustor", "clearFlags", "assetHomeDomain");
+    unknownOperationTemplate = templates.compile("unknown", "type", "id", "sourceAccount");
+
+    handlers = new OperationMessageHandlerRegistry((operation, accountId) -> createUnknownOperationTypeMessage(operation));
+    registerBuiltInHandlers();
+    ServiceLoader.load(OperationMessageHandlerProvider.class).forEach(provider -> provider.registerHandlers(handlers));
   }
 
   public Message createMessage(OperationResponse operation, String accountId) {
-    Message message;
-    if (operation instanceof PaymentOperationResponse paymentOperationResponse) {
-      message = createPaymentMessage(paymentOperationResponse, accountId);
-    } else if (operation instanceof AccountMergeOperationResponse accountMergeOperationResponse) {
-      message = createAccountMergeMessage(accountMergeOperationResponse);
-    } else if (operation instanceof ChangeTrustOperationResponse changeTrustOperationResponse) {
-      message = createChangeTrustOperationMessage(changeTrustOperationResponse);
-    } else if (operation instanceof CreatePassiveSellOfferOperationResponse createPassiveSellOfferOperationResponse) {
-      message = createPassiveSellOfferOperationMessage(createPassiveSellOfferOperationResponse);
-    } else if (operation instanceof InflationOperationResponse inflationOperationResponse) {
-      message = createInflationOperationMessage(inflationOperationResponse);
-    } else if (operation instanceof ManageDataOperationResponse manageDataOperationResponse) {
-      message = createManageDataOperationMessage(manageDataOperationResponse);
-    } else if (operation instanceof ManageSellOfferOperationResponse manageSellOfferOperationResponse) {
-      message = createManageSellOfferOperationMessage(manageSellOfferOperationResponse);
-    } else if (operation instanceof PathPaymentStrictReceiveOperationResponse pathPaymentStrictReceiveOperationResponse) {
-      message = createPathPaymentOperationMessage(pathPaymentStrictReceiveOperationResponse);
-    } else if (operation instanceof PathPaymentStrictSendOperationResponse pathPaymentStrictSendOperationResponse) {
-      message = createPathPaymentOperationMessage(pathPaymentStrictSendOperationResponse);
-    } else if (operation instanceof SetOptionsOperationResponse setOptionsOperationResponse) {
-      message = createSetOptionsOperationMessage(setOptionsOperationResponse);
-    } else if (operation instanceof CreateAccountOperationResponse createAccountOperationResponse) {
-      message = createCreateAccountOperationMessage(createAccountOperationResponse);
-    } else if (operation instanceof BumpSequenceOperationResponse bumpSequenceOperationResponse) {
-      message = createBumpSequenceOperationMessage(bumpSequenceOperationResponse);
-    } else if (operation instanceof ManageBuyOfferOperationResponse manageBuyOfferOperationResponse) {
-      message = createManageBuyOfferOperationResponseMessage(manageBuyOfferOperationResponse);
-    } else if (operation instanceof PathPaymentBaseOperationResponse pathPaymentBaseOperationResponse) {
-      message = createPathPaymentBaseOperationResponse(pathPaymentBaseOperationResponse);
-    } else if (operation instanceof BeginSponsoringFutureReservesOperationResponse beginSponsoringFutureReservesOperationResponse) {
-      message = createBeginSponsoringFutureReservesOperationResponseMessage(beginSponsoringFutureReservesOperationResponse);
-    } else if (operation instanceof ClaimClaimableBalanceOperationResponse claimClaimableBalanceOperationResponse) {
-      message = createClaimClaimableBalanceOperationResponseMessage(claimClaimableBalanceOperationResponse);
-    } else if (operation instanceof ClawbackClaimableBalanceOperationResponse clawbackClaimableBalanceOperationResponse) {
-      message = createClawbackClaimableBalanceOperationResponseMessage(clawbackClaimableBalanceOperationResponse);
-    } else if (operation instanceof ClawbackOperationResponse clawbackOperationResponse) {
-      message = createClawbackOperationResponseMessage(clawbackOperationResponse);
-    } else if (operation instanceof CreateClaimableBalanceOperationResponse createClaimableBalanceOperationResponse) {
-      message = createCreateClaimableBalanceOperationResponseMessage(createClaimableBalanceOperationResponse);
-    } else if (operation instanceof EndSponsoringFutureReservesOperationResponse endSponsoringFutureReservesOperationResponse) {
-      message = createEndSponsoringFutureReservesOperationResponseMessage(endSponsoringFutureReservesOperationResponse);
-    } else if (operation instanceof ExtendFootprintTTLOperationResponse extendFootprintTTLOperationResponse) {
-      message = createExtendFootprintTTLOperationResponseMessage(extendFootprintTTLOperationResponse);
-    } else if (operation instanceof InvokeHostFunctionOperationResponse invokeHostFunctionOperationResponse) {
-      message = createInvokeHostFunctionOperationResponseMessage(invokeHostFunctionOperationResponse);
-    } else if (operation instanceof LiquidityPoolDepositOperationResponse liquidityPoolDepositOperationResponse) {
-      message = createLiquidityPoolDepositOperationResponseMessage(liquidityPoolDepositOperationResponse);
-    } else if (operation instanceof LiquidityPoolWithdrawOperationResponse liquidityPoolWithdrawOperationResponse) {
-      message = createLiquidityPoolWithdrawOperationResponseMessage(liquidityPoolWithdrawOperationResponse);
-    } else if (operation instanceof RestoreFootprintOperationResponse restoreFootprintOperationResponse) {
-      message = createRestoreFootprintOperationResponseMessage(restoreFootprintOperationResponse);
-    } else if (operation instanceof RevokeSponsorshipOperationResponse revokeSponsorshipOperationResponse) {
-      message = createRevokeSponsorshipOperationResponseMessage(revokeSponsorshipOperationResponse);
-    } else if (operation instanceof SetTrustLineFlagsOperationResponse setTrustLineFlagsOperationResponse) {
-      message = createSetTrustLineFlagsOperationResponseMessage(setTrustLineFlagsOperationResponse);
-    } else {
-      message = createUnknownOperationTypeMessage(operation);
+    return createMessage(operation, accountId, OperationFacts.of(operation, accountId));
+  }
+
+  /**
+   * @param facts of the operation for the account, when already extracted
+   */
+  public Message createMessage(OperationResponse operation, String accountId, OperationFacts facts) {
+    Message message = handlers.handlerFor(operation.getClass()).createMessage(operation, accountId);
+    if (message == null) {
+      return null;
     }
 
-    return message;
+    return message.withOperation(operation.getId(), operation.getType(), facts.asset() != null ? getAssetName(facts.asset()) : null,
+      facts.amount());
+  }
+
+  private void registerBuiltInHandlers() {
+    handlers.register(PaymentOperationResponse.class, this::createPaymentMessage);
+    handlers.register(AccountMergeOperationResponse.class, (operation, accountId) -> createAccountMergeMessage(operation));
+    handlers.register(ChangeTrustOperationResponse.class, (operation, accountId) -> createChangeTrustOperationMessage(operation));
+    handlers.register(CreatePassiveSellOfferOperationResponse.class,
+      (operation, accountId) -> createPassiveSellOfferOperationMessage(operation));
+    handlers.register(InflationOperationResponse.class, (operation, accountId) -> createInflationOperationMessage(operation));
+    handlers.register(ManageDataOperationResponse.class, (operation, accountId) -> createManageDataOperationMessage(operation));
+    handlers.register(ManageSellOfferOperationResponse.class, (operation, accountId) -> createManageSellOfferOperationMessage(operation));
+    handlers.register(PathPaymentStrictReceiveOperationResponse.class,
+      (operation, accountId) -> createPathPaymentOperationMessage(operation));
+    handlers.register(PathPaymentStrictSendOperationResponse.class, (operation, accountId) -> createPathPaymentOperationMessage(operation));
+    handlers.register(SetOptionsOperationResponse.class, (operation, accountId) -> createSetOptionsOperationMessage(operation));
+    handlers.register(CreateAccountOperationResponse.class, (operation, accountId) -> createCreateAccountOperationMessage(operation));
+    handlers.register(BumpSequenceOperationResponse.class, (operation, accountId) -> createBumpSequenceOperationMessage(operation));
+    handlers.register(ManageBuyOfferOperationResponse.class,
+      (operation, accountId) -> createManageBuyOfferOperationResponseMessage(operation));
+    handlers.register(PathPaymentBaseOperationResponse.class, (operation, accountId) -> createPathPaymentBaseOperationResponse(operation));
+    handlers.register(BeginSponsoringFutureReservesOperationResponse.class,
+      (operation, accountId) -> createBeginSponsoringFutureReservesOperationResponseMessage(operation));
+    handlers.register(ClaimClaimableBalanceOperationResponse.class,
+      (operation, accountId) -> createClaimClaimableBalanceOperationResponseMessage(operation));
+    handlers.register(ClawbackClaimableBalanceOperationResponse.class,
+      (operation, accountId) -> createClawbackClaimableBalanceOperationResponseMessage(operation));
+    handlers.register(ClawbackOperationResponse.class, (operation, accountId) -> createClawbackOperationResponseMessage(operation));
+    handlers.register(CreateClaimableBalanceOperationResponse.class,
+      (operation, accountId) -> createCreateClaimableBalanceOperationResponseMessage(operation));
+    handlers.register(EndSponsoringFutureReservesOperationResponse.class,
+      (operation, accountId) -> createEndSponsoringFutureReservesOperationResponseMessage(operation));
+    handlers.register(ExtendFootprintTTLOperationResponse.class,
+      (operation, accountId) -> createExtendFootprintTTLOperationResponseMessage(operation));
+    handlers.register(InvokeHostFunctionOperationResponse.class,
+      (operation, accountId) -> createInvokeHostFunctionOperationResponseMessage(operation));
+    handlers.register(LiquidityPoolDepositOperationResponse.class,
+      (operation, accountId) -> createLiquidityPoolDepositOperationResponseMessage(operation));
+    handlers.register(LiquidityPoolWithdrawOperationResponse.class,
+      (operation, accountId) -> createLiquidityPoolWithdrawOperationResponseMessage(operation));
+    handlers.register(RestoreFootprintOperationResponse.class,
+      (operation, accountId) -> createRestoreFootprintOperationResponseMessage(operation));
+    handlers.register(RevokeSponsorshipOperationResponse.class,
+      (operation, accountId) -> createRevokeSponsorshipOperationResponseMessage(operation));
+    handlers.register(SetTrustLineFlagsOperationResponse.class,
+      (operation, accountId) -> createSetTrustLineFlagsOperationResponseMessage(operation));
   }
 
   private Message createSetTrustLineFlagsOperationResponseMessage(SetTrustLineFlagsOperationResponse operation) {
-    String asset = getAssetName(operation.getAsset());
-    String trustor = operation.getTrustor();
-    List<String> clearFlagStrings = operation.getClearFlagStrings();
-
-    String subject = "Stellar Set Trust Line Flags";
-    String body = String.format("Set Trust Line Flags. Asset: %s, Trustor: %s, Clear Flags: %s", asset, trustor, clearFlagStrings);
-    return new Message(subject, body);
+    return setTrustLineFlagsTemplate.render(getAssetName(operation.getAsset()), operation.getTrustor(),
+      String.valueOf(operation.getClearFlagStrings()), getAssetHomeDomain(operation.getAsset()));
   }
 
   private Message createRevokeSponsorshipOperationResponseMessage(RevokeSponsorshipOperationResponse operation) {
-    String accountId = operation.getAccountId();
-    String claimableBalanceId = operation.getClaimableBalanceId();
-    String dataAccountId = operation.getDataAccountId();
-    String dataName = operation.getDataName();
-    Long offerId = operation.getOfferId();
-    String trustlineAccountId = operation.getTrustlineAccountId();
-    String trustlineAsset = operation.getTrustlineAsset();
-    String signerAccountId = operation.getSignerAccountId();
-    String signerKey = operation.getSignerKey();
-
-    String subject = "Stellar Revoke Sponsorship";
-    String body = String.format(
-      "Revoke Sponsorship. Account Id: %s, Claimable Balance Id: %s, Data Account Id: %s, Data Name: %s, Offer Id: %s, Trustline Account Id: %s, Trustline Asset: %s, Signer Account Id: %s, Signer Key: %s",
-      accountId, claimableBalanceId, dataAccountId, dataName, offerId, trustlineAccountId, trustlineAsset, signerAccountId, signerKey);
-
-    return new Message(subject, body);
+    return revokeSponsorshipTemplate.render(operation.getAccountId(), operation.getClaimableBalanceId(), operation.getDataAccountId(),
+      operation.getDataName(), String.valueOf(operation.getOfferId()), operation.getTrustlineAccountId(), operation.getTrustlineAsset(),
+      operation.getSignerAccountId(), operation.getSignerKey());
   }
 
   private Message createRestoreFootprintOperationResponseMessage(RestoreFootprintOperationResponse operation) {
-    String subject = "Stellar Restore Footprint";
-    String body = "Restored Footprint";
-    return new Message(subject, body);
+    return restoreFootprintTemplate.render();
   }
 
   private Message createLiquidityPoolWithdrawOperationResponseMessage(LiquidityPoolWithdrawOperationResponse operation) {
-    String liquidityPoolId = operation.getLiquidityPoolId();
-    List<AssetAmount> reservesMin = operation.getReservesMin();
-    List<AssetAmount> reservesReceived = operation.getReservesReceived();
-    String shares = operation.getShares();
-    String subject = "Stellar Liquidity Pool Withdraw";
-    String body = String.format(
-      "Liquidity Pool Withdraw. Liquidity Pool Id: %s, Reserves Min: %s, Reserves Received: %s, Shares: %s",
-      liquidityPoolId, reservesMin, reservesReceived, shares);
-    return new Message(subject, body);
+    return liquidityPoolWithdrawTemplate.render(operation.getLiquidityPoolId(), String.valueOf(operation.getReservesMin()),
+      String.valueOf(operation.getReservesReceived()), operation.getShares());
   }
 
   private Message createLiquidityPoolDepositOperationResponseMessage(LiquidityPoolDepositOperationResponse operation) {
-    String liquidityPoolId = operation.getLiquidityPoolId();
-    List<AssetAmount> reservesMax = operation.getReservesMax();
-    String maxPrice = operation.getMaxPrice();
-    String minPrice = operation.getMinPrice();
-    Price maxPriceR = operation.getMaxPriceR();
-    Price minPriceR = operation.getMinPriceR();
-    List<AssetAmount> reservesDeposited = operation.getReservesDeposited();
-    String sharesReceived = operation.getSharesReceived();
-
-    String subject = "Stellar Liquidity Pool Deposit";
-    String body = String.format(
-      "Liquidity Pool Deposit. Liquidity Pool Id: %s, Reserves Max: %s, Max Price: %s, Min Price: %s, Max Price R: %s, Min Price R: %s, Reserves Deposited: %s, Shares Received: %s",
-      liquidityPoolId, reservesMax, maxPrice, minPrice, maxPriceR, minPriceR, reservesDeposited, sharesReceived);
-    return new Message(subject, body);
+    return liquidityPoolDepositTemplate.render(operation.getLiquidityPoolId(), String.valueOf(operation.getReservesMax()),
+      operation.getMaxPrice(), operation.getMinPrice(), String.valueOf(operation.getMaxPriceR()), String.valueOf(operation.getMinPriceR()),
+      String.valueOf(operation.getReservesDeposited()), operation.getSharesReceived());
   }
 
   private Message createInvokeHostFunctionOperationResponseMessage(InvokeHostFunctionOperationResponse operation) {
-    String function = operation.getFunction();
-    List<HostFunctionParameter> parameters = operation.getParameters();
-    String address = operation.getAddress();
-    String salt = operation.getSalt();
-    List<AssetContractBalanceChange> assetBalanceChanges = operation.getAssetBalanceChanges();
-
-    String subject = "Stellar Invoke Host Function";
-    String body = String.format("Invoked Host Function %s with parameters %s, address %s, salt %s, asset balance changes %s", function,
-      parameters, address, salt, assetBalanceChanges);
-
-    return new Message(subject, body);
+    return invokeHostFunctionTemplate.render(operation.getFunction(), String.valueOf(operation.getParameters()), operation.getAddress(),
+      operation.getSalt(), String.valueOf(operation.getAssetBalanceChanges()));
   }
 
   private Message createExtendFootprintTTLOperationResponseMessage(ExtendFootprintTTLOperationResponse operation) {
-    Long extendTo = operation.getExtendTo();
-    String subject = "Stellar Extend Footprint TTL";
-    String body = String.format("Extended Footprint TTL to %s", extendTo);
-
-    return new Message(subject, body);
+    return extendFootprintTTLTemplate.render(String.valueOf(operation.getExtendTo()));
   }
 
   private Message createEndSponsoringFutureReservesOperationResponseMessage(EndSponsoringFutureReservesOperationResponse operation) {
-    String beginSponsor = operation.getBeginSponsor();
-    String subject = "End Sponsoring Future Reserves Operation";
-    String body = String.format("End Sponsoring Future Reserves Operation. Begin Sponsor: %s", beginSponsor);
-    return new Message(subject, body);
+    return endSponsoringFutureReservesTemplate.render(operation.getBeginSponsor());
   }
 
   private Message createCreateClaimableBalanceOperationResponseMessage(CreateClaimableBalanceOperationResponse operation) {
-    String amount = operation.getAmount();
-    String asset = getAssetName(operation.getAsset());
-    List<Claimant> claimants = operation.getClaimants();
-    String subject = "Create Claimable Balance Operation";
-    String body = String.format("Create Claimable Balance Operation. Asset: %s, Amount: %s, Claimants: %s", asset, amount, claimants);
-
-    return new Message(subject, body);
+    return createClaimableBalanceTemplate.render(getAssetName(operation.getAsset()), operation.getAmount(),
+      String.valueOf(operation.getClaimants()), getAssetHomeDomain(operation.getAsset()));
   }
 
   private Message createClawbackOperationResponseMessage(ClawbackOperationResponse operation) {
-    String amount = operation.getAmount();
-    String asset = getAssetName(operation.getAsset());
-    String from = operation.getFrom();
-
-    String subject = "Clawback Operation";
-    String body = String.format("Clawback Operation. Asset: %s, Amount: %s, From: %s", asset, amount, from);
-    return new Message(subject, body);
+    return clawbackTemplate.render(getAssetName(operation.getAsset()), operation.getAmount(), operation.getFrom(),
+      getAssetHomeDomain(operation.getAsset()));
   }
 
   private Message createClawbackClaimableBalanceOperationResponseMessage(ClawbackClaimableBalanceOperationResponse operation) {
-    String balanceId = operation.getBalanceId();
-    String subject = "Clawback Claimable Balance Operation";
-    String body = String.format("Clawback Claimable Balance Operation. Balance Id: %s", balanceId);
-
-    return new Message(subject, body);
+    return clawbackClaimableBalanceTemplate.render(operation.getBalanceId());
   }
 
   private Message createClaimClaimableBalanceOperationResponseMessage(ClaimClaimableBalanceOperationResponse operation) {
-    String balanceId = operation.getBalanceId();
-    String claimant = operation.getClaimant();
-    String subject = "Claim Claimable Balance Operation";
-    String body = String.format("Claim Claimable Balance Operation. Balance Id: %s, Claimant: %s", balanceId, claimant);
-
-    return new Message(subject, body);
+    return claimClaimableBalanceTemplate.render(operation.getBalanceId(), operation.getClaimant());
   }
 
   private Message createBeginSponsoringFutureReservesOperationResponseMessage(BeginSponsoringFutureReservesOperationResponse operation) {
-    String sponsoredId = operation.getSponsoredId();
-    String subject = "Begin Sponsoring Future Reserves Operation";
-    String body = String.format("Begin Sponsoring Future Reserves Operation. Sponsored Id: %s", sponsoredId);
-
-    return new Message(subject, body);
+    return beginSponsoringFutureReservesTemplate.render(operation.getSponsoredId());
   }
 
   private Message createPathPaymentBaseOperationResponse(PathPaymentBaseOperationResponse operation) {
-    String amount = operation.getAmount();
-    String asset = getAssetName(operation.getAsset());
-    String from = operation.getFrom();
-    String to = operation.getTo();
-    String sourceAmount = operation.getSourceAmount();
-    String sourceAsset = getAssetName(operation.getSourceAsset());
-    String path = operation.getPath().stream().map(this::getAssetName).collect(Collectors.joining(", "));
+    String path = operation.getPath().stream().map(PaymentOperationMessagesCreator::getAssetName).collect(Collectors.joining(", "));
 
-    String subject = "Path Payment Base Operation";
-    String body = String.format(
-      "Path Payment Base Operation. Asset: %s, From: %s, To: %s, Amount: %s, Source Amount: %s, Source Asset: %s, Path: %s ",
-      asset, from, to, amount, sourceAmount, sourceAsset, path);
-
-    return new Message(subject, body);
+    return pathPaymentBaseTemplate.render(getAssetName(operation.getAsset()), operation.getFrom(), operation.getTo(),
+      operation.getAmount(), operation.getSourceAmount(), getAssetName(operation.getSourceAsset()), path,
+      getAssetHomeDomain(operation.getAsset()));
   }
 
   private Message createManageBuyOfferOperationResponseMessage(ManageBuyOfferOperationResponse operation) {
-    String amount = operation.getAmount();
-    String buyingAsset = getAssetName(operation.getBuyingAsset());
-    Long offerId = operation.getOfferId();
-    String price = operation.getPrice();
-    String sellingAsset = getAssetName(operation.getSellingAsset());
-
-    String subject = "Manage Buy Offer Operation";
-    String body = String.format("Buy offer operation. offerId: %s, Buying Asset: %s, Amount: %s, Selling Asset: %s, Price: %s",
-      offerId, buyingAsset, amount, sellingAsset, price);
-
-    return new Message(subject, body);
+    return manageBuyOfferTemplate.render(String.valueOf(operation.getOfferId()), getAssetName(operation.getBuyingAsset()),
+      operation.getAmount(), getAssetName(operation.getSellingAsset()), operation.getPrice());
   }
 
   private Message createBumpSequenceOperationMessage(BumpSequenceOperationResponse operation) {
-    Long bumpTo = operation.getBumpTo();
-
-    String subject = "Stellar Bump Sequence";
-    String body = String.format("Bumped Sequence to %s", bumpTo);
-
-    return new Message(subject, body);
+    return bumpSequenceTemplate.render(String.valueOf(operation.getBumpTo()));
   }
 
   private Message createCreateAccountOperationMessage(CreateAccountOperationResponse createAccountOperation) {
-    String account = createAccountOperation.getAccount();
-    String funder = createAccountOperation.getFunder();
-    String startingBalance = createAccountOperation.getStartingBalance();
-
-    String subject = "Stellar account created";
-    String body = String.format("Account %s created by funder %s with balance %s", account, funder, startingBalance);
-
-    return new Message(subject, body);
+    return createAccountTemplate.render(createAccountOperation.getAccount(), createAccountOperation.getFunder(),
+      createAccountOperation.getStartingBalance());
   }
 
   private Message createUnknownOperationTypeMessage(OperationResponse operation) {
-    String subject = "Stellar Unknown operation type.";
-    String body = String.format("Operation Received - Type: %s, Id: %s, SourceAccount: %s", operation.getType(), operation.getId(),
-      operation.getSourceAccount());
-
-    return new Message(subject, body);
+    return unknownOperationTemplate.render(operation.getType(), String.valueOf(operation.getId()), operation.getSourceAccount());
   }
 
   private Message createSetOptionsOperationMessage(SetOptionsOperationResponse setOptionsOperation) {
-    List<Integer> clearFlags = setOptionsOperation.getClearFlags();
-    Integer highThreshold = setOptionsOperation.getHighThreshold();
-    String homeDomain = setOptionsOperation.getHomeDomain();
-    String inflationDestination = setOptionsOperation.getInflationDestination();
-    Integer lowThreshold = setOptionsOperation.getLowThreshold();
-    Integer masterKeyWeight = setOptionsOperation.getMasterKeyWeight();
-    Integer medThreshold = setOptionsOperation.getMedThreshold();
-    List<Integer> setFlags = setOptionsOperation.getSetFlags();
-    String signer = setOptionsOperation.getSignerKey();
-    Integer signerWeight = setOptionsOperation.getSignerWeight();
-
-    String subject = "Stellar Set Options operation";
-    String body = String.format("Set options. clearFlags: %s, highThreshold: %s, homeDomain: %s, inflationDestination: %s, " +
-        "lowThreshold: %s, masterKeyWeight: %s, medThreshold: %s, setFlags: %s, signer: %s, signerWeight: %s.",
-      StringUtils.join(clearFlags, ","), highThreshold, homeDomain, inflationDestination, lowThreshold, masterKeyWeight, medThreshold,
-      StringUtils.join(setFlags, ","), signer, signerWeight);
-
-    return new Message(subject, body);
+    return setOptionsTemplate.render(StringUtils.join(setOptionsOperation.getClearFlags(), ","),
+      String.valueOf(setOptionsOperation.getHighThreshold()), setOptionsOperation.getHomeDomain(),
+      setOptionsOperation.getInflationDestination(), String.valueOf(setOptionsOperation.getLowThreshold()),
+      String.valueOf(setOptionsOperation.getMasterKeyWeight()), String.valueOf(setOptionsOperation.getMedThreshold()),
+      StringUtils.join(setOptionsOperation.getSetFlags(), ","), setOptionsOperation.getSignerKey(),
+      String.valueOf(setOptionsOperation.getSignerWeight()));
   }
 
   private Message createPathPaymentOperationMessage(PathPaymentBaseOperationResponse pathPaymentOperation) {
-    String amount = pathPaymentOperation.getAmount();
-    String asset = getAssetName(pathPaymentOperation.getAsset());
-    String from = pathPaymentOperation.getFrom();
-    String to = pathPaymentOperation.getTo();
-    String body = String.format("Created path payment of %s %s, from %s to %s", amount, asset, from, to);
-    String subject = "Stellar Path Payment operation";
-
-    return new Message(subject, body);
+    return pathPaymentTemplate.render(pathPaymentOperation.getAmount(), getAssetName(pathPaymentOperation.getAsset()),
+      pathPaymentOperation.getFrom(), pathPaymentOperation.getTo(), getAssetHomeDomain(pathPaymentOperation.getAsset()));
   }
 
   private Message createManageSellOfferOperationMessage(ManageSellOfferOperationResponse manageSellOfferOperation) {
-    String amount = manageSellOfferOperation.getAmount();
-    String buyingAsset = getAssetName(manageSellOfferOperation.getBuyingAsset());
-    Long offerId = manageSellOfferOperation.getOfferId();
-    String price = manageSellOfferOperation.getPrice();
-    String sellingAsset = getAssetName(manageSellOfferOperation.getSellingAsset());
-
-    String body = String.format("Managed sell offer buy %s %s at %s using %s with id %s", amount, buyingAsset, price, sellingAsset,
-      offerId);
-    String subject = "Stellar manage sell offer operation.";
-
-    return new Message(subject, body);
+    return manageSellOfferTemplate.render(manageSellOfferOperation.getAmount(), getAssetName(manageSellOfferOperation.getBuyingAsset()),
+      manageSellOfferOperation.getPrice(), getAssetName(manageSellOfferOperation.getSellingAsset()),
+      String.valueOf(manageSellOfferOperation.getOfferId()));
   }
 
   private Message createManageDataOperationMessage(ManageDataOperationResponse manageDataOperation) {
-    String name = manageDataOperation.getName();
-    String value = manageDataOperation.getValue();
-
-    String body = String.format("Data Operation %s -> %s", name, value);
-    String subject = "Stellar Data Operation";
-
-    return new Message(subject, body);
+    return manageDataTemplate.render(manageDataOperation.getName(), manageDataOperation.getValue());
   }
 
   private Message createInflationOperationMessage(InflationOperationResponse inflationOperation) {
@@ -373,100 +315,61 @@ public class PaymentOperationMessagesCreator {
   }
 
   private Message createPassiveSellOfferOperationMessage(CreatePassiveSellOfferOperationResponse createPassiveSellOfferOperation) {
-    String amount = createPassiveSellOfferOperation.getAmount();
-    String buyingAsset = getAssetName(createPassiveSellOfferOperation.getBuyingAsset());
-    String price = createPassiveSellOfferOperation.getPrice();
-    String sellingAsset = getAssetName(createPassiveSellOfferOperation.getSellingAsset());
-    Long offerId = createPassiveSellOfferOperation.getOfferId();
-
-    String body = String.format("Created passive sell offer buy %s %s at %s using %s with id %s", amount, buyingAsset, price, sellingAsset,
-      offerId);
-    String subject = "Stellar passive sell offer created.";
-
-    return new Message(subject, body);
-
+    return createPassiveSellOfferTemplate.render(createPassiveSellOfferOperation.getAmount(),
+      getAssetName(createPassiveSellOfferOperation.getBuyingAsset()), createPassiveSellOfferOperation.getPrice(),
+      getAssetName(createPassiveSellOfferOperation.getSellingAsset()), String.valueOf(createPassiveSellOfferOperation.getOfferId()));
   }
 
   private Message createChangeTrustOperationMessage(ChangeTrustOperationResponse changeTrustOperation) {
-    String asset = changeTrustOperation.getAssetCode();
-    String trustee = changeTrustOperation.getTrustee();
-    String trustor = changeTrustOperation.getTrustor();
-    String limit = changeTrustOperation.getLimit();
-
-    String body = String.format("Changed trust, from %s, to %s on %s with limit %s", trustor, trustee, asset, limit);
-    String subject = "Stellar change trust";
-
-    return new Message(subject, body);
+    return changeTrustTemplate.render(changeTrustOperation.getTrustor(), changeTrustOperation.getTrustee(),
+      changeTrustOperation.getAssetCode(), changeTrustOperation.getLimit());
   }
 
   private Message createAccountMergeMessage(AccountMergeOperationResponse accountMergeOperation) {
-    String accountId = accountMergeOperation.getAccount();
-    String into = accountMergeOperation.getInto();
-    String body = String.format("Account %s merged into %s.", accountId, into);
-    String subject = "Stellar merge account.";
-
-    return new Message(subject, body);
+    return accountMergeTemplate.render(accountMergeOperation.getAccount(), accountMergeOperation.getInto());
   }
 
   private Message createPaymentMessage(PaymentOperationResponse paymentOperation, String accountId) {
-    String amount = paymentOperation.getAmount();
-    String asset = getAssetName(paymentOperation.getAsset());
-    String from = paymentOperation.getFrom();
-    String to = paymentOperation.getTo();
-    String memoText = getMemo(paymentOperation);
-    Date date = Date.from(Instant.parse(paymentOperation.getCreatedAt()));
-    String subject = "Stellar payment operation.";
-    String body;
-    if (paymentOperation.getTo().equals(accountId)) {
-      body = String.format("Received payment of %s %s from %s to %s on %tc.%n Memo: %s", amount, asset, from, to, date, memoText);
-    } else {
-      body = String.format("Sent payment of %s %s from %s to %s on %tc.%n Memo: %s", amount, asset, from, to, date, memoText);
-    }
+    OperationTemplate template = paymentOperation.getTo().equals(accountId) ? paymentReceivedTemplate : paymentSentTemplate;
+    String date = DATE_FORMATTER.format(Instant.parse(paymentOperation.getCreatedAt()));
 
-    if (excludedTokens.contains(getAssetCode(paymentOperation.getAsset()))) {
-      return null;
-    }
-
-    return new Message(subject, body);
+    return template.render(paymentOperation.getAmount(), getAssetName(paymentOperation.getAsset()), paymentOperation.getFrom(),
+      paymentOperation.getTo(), date, getMemo(paymentOperation), getAssetHomeDomain(paymentOperation.getAsset()));
   }
 
   private String getMemo(PaymentOperationResponse paymentOperation) {
-    String memoText = "";
+    Memo memo = null;
     if (paymentOperation.getTransaction() != null) {
-      Memo memo = paymentOperation.getTransaction().getMemo();
-      if (memo instanceof MemoText memoT) {
-        memoText = memoT.getText();
-      }
+      memo = paymentOperation.getTransaction().getMemo();
+    } else if (paymentOperation.getTransactionHash() != null) {
+      memo = memos.memoOf(paymentOperation.getTransactionHash());
     }
 
-    return memoText;
-  }
-
-  private String getAssetName(Asset asset) {
-    String assetName;
-    if (asset instanceof AssetTypeNative) {
-      assetName = "lumens";
-    } else if (asset instanceof AssetTypeCreditAlphaNum pathPaymentBaseOperationResponse) {
-      assetName = pathPaymentBaseOperationResponse.getCode();
-      assetName += ":";
-      assetName += pathPaymentBaseOperationResponse.getIssuer();
-    } else {
-      assetName = "unknown";
+    String memoText = "";
+    if (memo instanceof MemoText memoT) {
+      memoText = memoT.getText();
+    } else if (memo instanceof MemoId memoId) {
+      memoText = String.valueOf(memoId.getId());
+    } else if (memo instanceof MemoReturnHash memoReturnHash) {
+      memoText = "return " + memoReturnHash.getHexValue();
+    } else if (memo instanceof MemoHash memoHash) {
+      memoText = memoHash.getHexValue();
     }
 
-    return assetName;
+    return memoText;
   }
 
-  private String getAssetCode(Asset asset) {
-    String assetCode;
-    if (asset instanceof AssetTypeNative) {
-      assetCode = "XLM";
-    } else if (asset instanceof AssetTypeCreditAlphaNum pathPaymentBaseOperationResponse) {
-      assetCode = pathPaymentBaseOperationResponse.getCode();
-    } else {
-      assetCode = "unknown";
-    }
+  /**
+   * @return the name of the asset, which doesn't change once the home domain of its issuer is resolved
+   */
+  public static String getAssetName(Asset asset) {
+    return AssetDescriptors.of(asset).name();
+  }
 
-    return assetCode;
+  /**
+   * @return the home domain of the asset issuer, empty until resolved
+   */
+  public static String getAssetHomeDomain(Asset asset) {
+    return StringUtils.defaultString(AssetDescriptors.of(asset).homeDomain());
   }
 }
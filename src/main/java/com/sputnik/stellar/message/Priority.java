@@ -0,0 +1,11 @@
+package com.sputnik.stellar.message;
+
+/**
+ * Lane of a notification in the sink queues: higher lanes are sent first, and the lowest one is digested or dropped when
+ * a sink can't keep up.
+ */
+public enum Priority {
+  HIGH,
+  NORMAL,
+  LOW
+}
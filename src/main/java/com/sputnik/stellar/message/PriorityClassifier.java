@@ -0,0 +1,42 @@
+package com.sputnik.stellar.message;
+
+import org.stellar.sdk.responses.operations.AccountMergeOperationResponse;
+import org.stellar.sdk.responses.operations.OperationResponse;
+import org.stellar.sdk.responses.operations.SetOptionsOperationResponse;
+
+/**
+ * Decides the lane of the notification of an operation. Account merges and changes of who can sign for the account
+ * (signers, master key weight and thresholds) are high priority, as are incoming moves of at least {@code highAmount}.
+ * Moves of less than {@code lowAmount} are low priority.
+ *
+ * @param highAmount in stroops, null to not raise the priority of any move
+ * @param lowAmount  in stroops, null to not lower the priority of any move
+ */
+public record PriorityClassifier(Long highAmount, Long lowAmount) {
+
+  public Priority classify(OperationResponse operation, OperationFacts facts) {
+    if (changesAccountControl(operation)) {
+      return Priority.HIGH;
+    }
+
+    if (!facts.hasAmount()) {
+      return Priority.NORMAL;
+    }
+    if (highAmount != null && facts.incoming() && facts.stroops() >= highAmount) {
+      return Priority.HIGH;
+    }
+    if (lowAmount != null && facts.stroops() < lowAmount) {
+      return Priority.LOW;
+    }
+    return Priority.NORMAL;
+  }
+
+  private static boolean changesAccountControl(OperationResponse operation) {
+    if (operation instanceof AccountMergeOperationResponse) {
+      return true;
+    }
+    return operation instanceof SetOptionsOperationResponse setOptions
+      && (setOptions.getSignerKey() != null || setOptions.getMasterKeyWeight() != null
+      || setOptions.getLowThreshold() != null || setOptions.getMedThreshold() != null || setOptions.getHighThreshold() != null);
+  }
+}
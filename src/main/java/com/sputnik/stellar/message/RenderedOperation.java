@@ -0,0 +1,9 @@
+package com.sputnik.stellar.message;
+
+/**
+ * An operation rendered for an account, with its facts so they're only extracted once from the operation.
+ *
+ * @param message the notification, null if the operation must not be notified
+ */
+public record RenderedOperation(Message message, OperationFacts facts) {
+}
@@ -0,0 +1,85 @@
+package com.sputnik.stellar.message.template;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Text with {@code {name}} placeholders (and {@code {{} for a literal brace), compiled once into a list of literal
+ * segments and parameter indexes, so rendering is just appending to a reusable builder.
+ */
+public final class MessageTemplate {
+
+  private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+  private final String text;
+  private final String[] literals;
+  private final int[] parameters;
+
+  private MessageTemplate(String text, String[] literals, int[] parameters) {
+    this.text = text;
+    this.literals = literals;
+    this.parameters = parameters;
+  }
+
+  /**
+   * @param parameterNames names of the values passed to {@link #render(String...)}, in the same order
+   * @throws IllegalArgumentException if the text uses a placeholder not in parameterNames or has an unclosed brace
+   */
+  public static MessageTemplate compile(String text, String... parameterNames) {
+    List<String> names = Arrays.asList(parameterNames);
+    List<String> literals = new ArrayList<>();
+    List<Integer> parameters = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int position = 0;
+    while (position < text.length()) {
+      char c = text.charAt(position);
+      if (c == '{' && text.startsWith("{{", position)) {
+        literal.append('{');
+        position += 2;
+      } else if (c == '{') {
+        int end = text.indexOf('}', position);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed placeholder at " + position + " in template: " + text);
+        }
+        String name = text.substring(position + 1, end);
+        int index = names.indexOf(name);
+        if (index < 0) {
+          throw new IllegalArgumentException("Unknown placeholder {" + name + "} in template: " + text + ", available: " + names);
+        }
+        literals.add(literal.toString());
+        parameters.add(index);
+        literal.setLength(0);
+        position = end + 1;
+      } else {
+        literal.append(c);
+        position++;
+      }
+    }
+    literals.add(literal.toString());
+    parameters.add(-1);
+
+    return new MessageTemplate(text, literals.toArray(String[]::new), parameters.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  public String render(String... values) {
+    StringBuilder builder = BUILDER.get();
+    builder.setLength(0);
+    renderTo(builder, values);
+    return builder.toString();
+  }
+
+  public void renderTo(StringBuilder builder, String... values) {
+    for (int i = 0; i < literals.length; i++) {
+      builder.append(literals[i]);
+      if (parameters[i] >= 0) {
+        builder.append(values[parameters[i]]);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
@@ -0,0 +1,58 @@
+package com.sputnik.stellar.message.template;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.function.UnaryOperator;
+
+/**
+ * Message templates by key: the defaults from {@code message-templates.properties}, which can be overridden with
+ * {@code template.<key>.subject} and {@code template.<key>.body} configuration values.
+ */
+public class MessageTemplates {
+
+  public static final String DEFAULTS_RESOURCE = "/message-templates.properties";
+  public static final String OVERRIDE_PREFIX = "template.";
+
+  private final Properties defaults = new Properties();
+  private final UnaryOperator<String> overrides;
+
+  /**
+   * @param overrides looks up configuration values, returning null for the keys not configured
+   */
+  public MessageTemplates(UnaryOperator<String> overrides) {
+    this.overrides = overrides;
+    try (Reader reader = new InputStreamReader(
+      Objects.requireNonNull(MessageTemplates.class.getResourceAsStream(DEFAULTS_RESOURCE), DEFAULTS_RESOURCE),
+      StandardCharsets.UTF_8)) {
+      defaults.load(reader);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static MessageTemplates defaults() {
+    return new MessageTemplates(key -> null);
+  }
+
+  public OperationTemplate compile(String key, String... parameterNames) {
+    return new OperationTemplate(
+      MessageTemplate.compile(getText(key + ".subject"), parameterNames),
+      MessageTemplate.compile(getText(key + ".body"), parameterNames));
+  }
+
+  private String getText(String key) {
+    String text = overrides.apply(OVERRIDE_PREFIX + key);
+    if (text == null) {
+      text = defaults.getProperty(key);
+    }
+    if (text == null) {
+      throw new IllegalArgumentException("No message template " + key);
+    }
+    return text;
+  }
+}
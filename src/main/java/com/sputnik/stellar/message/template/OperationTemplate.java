@@ -0,0 +1,13 @@
+package com.sputnik.stellar.message.template;
+
+import com.sputnik.stellar.message.Message;
+
+/**
+ * Subject and body templates of one kind of notification, sharing the same parameters.
+ */
+public record OperationTemplate(MessageTemplate subject, MessageTemplate body) {
+
+  public Message render(String... values) {
+    return new Message(subject.render(values), body.render(values));
+  }
+}
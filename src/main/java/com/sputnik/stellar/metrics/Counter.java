@@ -0,0 +1,31 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjDoubleConsumer;
+
+public class Counter implements Metric {
+
+  private final LongAdder value = new LongAdder();
+
+  public void increment() {
+    value.increment();
+  }
+
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public void writeTo(StringBuilder out, String name, String labels) {
+    out.append(Metric.sampleName(name, labels)).append(' ').append(value.sum()).append('\n');
+  }
+
+  @Override
+  public void samples(String name, String labels, ObjDoubleConsumer<String> consumer) {
+    consumer.accept(Metric.sampleName(name, labels), value.sum());
+  }
+}
@@ -0,0 +1,27 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.ObjDoubleConsumer;
+
+public class Gauge implements Metric {
+
+  private final DoubleSupplier value;
+
+  public Gauge(DoubleSupplier value) {
+    this.value = value;
+  }
+
+  public double get() {
+    return value.getAsDouble();
+  }
+
+  @Override
+  public void writeTo(StringBuilder out, String name, String labels) {
+    out.append(Metric.sampleName(name, labels)).append(' ').append(Metric.format(get())).append('\n');
+  }
+
+  @Override
+  public void samples(String name, String labels, ObjDoubleConsumer<String> consumer) {
+    consumer.accept(Metric.sampleName(name, labels), get());
+  }
+}
@@ -0,0 +1,66 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * Distribution of observed values (in seconds) over fixed buckets.
+ */
+public class Histogram implements Metric {
+
+  public static final double[] LATENCY_BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+  public static final double[] LAG_BUCKETS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300, 900, 3600, 21600, 86400};
+
+  private final double[] bounds;
+  private final LongAdder[] buckets;
+  private final LongAdder count = new LongAdder();
+  private final DoubleAdder sum = new DoubleAdder();
+
+  public Histogram(double[] bounds) {
+    this.bounds = bounds.clone();
+    buckets = new LongAdder[bounds.length];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void observe(double value) {
+    for (int i = 0; i < bounds.length; i++) {
+      if (value <= bounds[i]) {
+        buckets[i].increment();
+        break;
+      }
+    }
+    count.increment();
+    sum.add(value);
+  }
+
+  public void observeNanos(long nanos) {
+    observe(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public void writeTo(StringBuilder out, String name, String labels) {
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += buckets[i].sum();
+      out.append(name).append("_bucket{").append(Metric.withLabel(labels, "le=\"" + bounds[i] + "\"")).append("} ")
+        .append(cumulative).append('\n');
+    }
+    out.append(name).append("_bucket{").append(Metric.withLabel(labels, "le=\"+Inf\"")).append("} ").append(count.sum()).append('\n');
+    out.append(Metric.sampleName(name + "_sum", labels)).append(' ').append(Metric.format(sum.sum())).append('\n');
+    out.append(Metric.sampleName(name + "_count", labels)).append(' ').append(count.sum()).append('\n');
+  }
+
+  @Override
+  public void samples(String name, String labels, ObjDoubleConsumer<String> consumer) {
+    consumer.accept(Metric.sampleName(name + "_sum", labels), sum.sum());
+    consumer.accept(Metric.sampleName(name + "_count", labels), count.sum());
+  }
+}
@@ -0,0 +1,33 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.function.ObjDoubleConsumer;
+
+interface Metric {
+
+  /**
+   * Writes the samples of the metric in Prometheus text format.
+   *
+   * @param labels the labels of the metric, without braces, possibly empty
+   */
+  void writeTo(StringBuilder out, String name, String labels);
+
+  /**
+   * Reports every sample of the metric, with the sample name and labels.
+   */
+  void samples(String name, String labels, ObjDoubleConsumer<String> consumer);
+
+  static String sampleName(String name, String labels) {
+    return labels.isEmpty() ? name : name + "{" + labels + "}";
+  }
+
+  static String withLabel(String labels, String label) {
+    return labels.isEmpty() ? label : labels + "," + label;
+  }
+
+  static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+}
@@ -0,0 +1,38 @@
+package com.sputnik.stellar.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves the metrics in Prometheus text format on {@code /metrics}.
+ */
+@Slf4j
+public class MetricsHttpServer implements AutoCloseable {
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer server;
+
+  public MetricsHttpServer(MetricsRegistry registry, int port) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] response = registry.scrape().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, response.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(response);
+      }
+    });
+    server.start();
+    log.info("Metrics available on http://localhost:{}/metrics", server.getAddress().getPort());
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,67 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * Exposes every sample of a {@link MetricsRegistry} as a read only JMX attribute.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+  private final MetricsRegistry registry;
+
+  public MetricsMBean(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Double value = registry.samples().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) {
+    throw new UnsupportedOperationException("Metrics are read only");
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Double> samples = registry.samples();
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      Double value = samples.get(attribute);
+      if (value != null) {
+        list.add(new Attribute(attribute, value));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    throw new UnsupportedOperationException(actionName);
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    MBeanAttributeInfo[] attributes = registry.samples().keySet().stream()
+      .map(name -> new MBeanAttributeInfo(name, Double.class.getName(), name, true, false, false))
+      .toArray(MBeanAttributeInfo[]::new);
+    return new MBeanInfo(getClass().getName(), "Stellar Notifier metrics", attributes, null, new MBeanOperationInfo[0], null);
+  }
+}
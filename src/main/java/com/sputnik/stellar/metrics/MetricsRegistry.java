@@ -0,0 +1,84 @@
+package com.sputnik.stellar.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Metrics by name and labels, exported in Prometheus text format and as a flat map of samples for JMX.
+ */
+public class MetricsRegistry {
+
+  private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+  /**
+   * @param labels label names and values: name1, value1, name2, value2...
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return family(name, help, "counter").get(labels, key -> new Counter(), Counter.class);
+  }
+
+  public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+    return family(name, help, "histogram").get(labels, key -> new Histogram(buckets), Histogram.class);
+  }
+
+  public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+    return family(name, help, "gauge").get(labels, key -> new Gauge(value), Gauge.class);
+  }
+
+  public String scrape() {
+    StringBuilder out = new StringBuilder();
+    families.forEach((name, family) -> {
+      out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+      out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+      family.metrics.forEach((labels, metric) -> metric.writeTo(out, name, labels));
+    });
+    return out.toString();
+  }
+
+  public Map<String, Double> samples() {
+    Map<String, Double> samples = new LinkedHashMap<>();
+    families.forEach((name, family) -> family.metrics.forEach((labels, metric) -> metric.samples(name, labels, samples::put)));
+    return samples;
+  }
+
+  private Family family(String name, String help, String type) {
+    Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+    if (!family.type.equals(type)) {
+      throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+    }
+    return family;
+  }
+
+  private static final class Family {
+
+    private final String help;
+    private final String type;
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    private Family(String help, String type) {
+      this.help = help;
+      this.type = type;
+    }
+
+    private <T extends Metric> T get(String[] labels, Function<String, T> factory, Class<T> metricType) {
+      return metricType.cast(metrics.computeIfAbsent(labelsText(labels), factory));
+    }
+
+    private static String labelsText(String[] labels) {
+      if (labels.length % 2 != 0) {
+        throw new IllegalArgumentException("Labels must be name and value pairs");
+      }
+      StringBuilder text = new StringBuilder();
+      for (int i = 0; i < labels.length; i += 2) {
+        if (i > 0) {
+          text.append(',');
+        }
+        text.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+      }
+      return text.toString();
+    }
+  }
+}
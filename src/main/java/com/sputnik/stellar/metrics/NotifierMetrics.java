@@ -0,0 +1,108 @@
+package com.sputnik.stellar.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * The metrics of the notifier stages: stream, render, notification sinks and checkpoint.
+ */
+@Slf4j
+public class NotifierMetrics {
+
+  public static final String JMX_NAME = "com.sputnik.stellar:type=Metrics";
+  private static final String PREFIX = "stellar_notifier_";
+
+  private final MetricsRegistry registry = new MetricsRegistry();
+  private final Map<String, Counter> eventsByType = new ConcurrentHashMap<>();
+  private final Map<String, Counter> reconnectsByAccount = new ConcurrentHashMap<>();
+  private final Histogram streamLag = registry.histogram(PREFIX + "stream_lag_seconds",
+    "Time between the operation creation and its reception", Histogram.LAG_BUCKETS);
+  private final Histogram renderTime = registry.histogram(PREFIX + "render_seconds",
+    "Time spent filtering and rendering an operation message", Histogram.LATENCY_BUCKETS);
+  private final Map<String, Histogram> sendTimeBySink = new ConcurrentHashMap<>();
+  private final Map<String, Counter> failuresBySink = new ConcurrentHashMap<>();
+  private final Map<String, Counter> droppedBySink = new ConcurrentHashMap<>();
+  private final Map<String, Counter> digestedBySink = new ConcurrentHashMap<>();
+  private final Counter duplicates = registry.counter(PREFIX + "duplicates_dropped_total",
+    "Operations not notified because they had already been");
+
+  public MetricsRegistry getRegistry() {
+    return registry;
+  }
+
+  public void eventReceived(OperationResponse operation) {
+    eventsByType.computeIfAbsent(operation.getType(),
+        type -> registry.counter(PREFIX + "events_received_total", "Operations received from the stream", "type", type))
+      .increment();
+    long lagMillis = System.currentTimeMillis() - Instant.parse(operation.getCreatedAt()).toEpochMilli();
+    streamLag.observe(Math.max(0, lagMillis) / 1000.0);
+  }
+
+  public Histogram renderTime() {
+    return renderTime;
+  }
+
+  public void notificationSent(String sink, long nanos) {
+    sendTimeBySink.computeIfAbsent(sink, name -> registry.histogram(PREFIX + "notification_send_seconds",
+        "Time spent sending a notification", Histogram.LATENCY_BUCKETS, "sink", name))
+      .observeNanos(nanos);
+  }
+
+  public void notificationFailed(String sink) {
+    failuresBySink.computeIfAbsent(sink,
+        name -> registry.counter(PREFIX + "notification_send_failures_total", "Notifications that could not be sent", "sink", name))
+      .increment();
+  }
+
+  public void notificationDropped(String sink) {
+    droppedBySink.computeIfAbsent(sink,
+        name -> registry.counter(PREFIX + "notification_dropped_total", "Notifications dropped with the sink queue full", "sink", name))
+      .increment();
+  }
+
+  public void notificationsDigested(String sink, int count) {
+    digestedBySink.computeIfAbsent(sink,
+        name -> registry.counter(PREFIX + "notification_digested_total", "Low priority notifications sent in a digest", "sink", name))
+      .add(count);
+  }
+
+  public void duplicateDropped() {
+    duplicates.increment();
+  }
+
+  public void streamReconnect(String accountId) {
+    reconnectsByAccount.computeIfAbsent(accountId,
+        account -> registry.counter(PREFIX + "stream_reconnects_total", "Stream reconnections", "account", account))
+      .increment();
+  }
+
+  public void checkpointAge(LongSupplier lastFlushMillis) {
+    registry.gauge(PREFIX + "checkpoint_age_seconds", "Time since the cursors were last written to disk",
+      () -> (System.currentTimeMillis() - lastFlushMillis.getAsLong()) / 1000.0);
+  }
+
+  public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+    registry.gauge(PREFIX + name, help, value, labels);
+  }
+
+  public void registerJmx() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), new ObjectName(JMX_NAME));
+    } catch (JMException e) {
+      log.warn("Error registering metrics MBean: {}", e.getMessage());
+    }
+  }
+
+  public MetricsHttpServer startHttpServer(int port) throws IOException {
+    return new MetricsHttpServer(registry, port);
+  }
+}
@@ -0,0 +1,291 @@
+package com.sputnik.stellar.outbox;
+
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.Priority;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable queue of the messages pending to be sent, so they survive sink outages and restarts.
+ * <p>
+ * Messages are appended to memory-mapped segment files as {@code [length][crc][delivered][message]} entries. The length
+ * is written last, so an entry interrupted by a crash is found with a zero length (or a wrong CRC) and ignored. The
+ * {@code delivered} byte has a bit per sink, set when the sink has sent the message. A segment file is deleted once
+ * all its entries have been delivered to all the sinks and a newer segment is being written.
+ * <p>
+ * The delivered marks are not forced to disk, so after a crash a few messages may be sent again, but none is lost.
+ */
+@Slf4j
+public class Outbox implements AutoCloseable {
+
+  public static final int MAX_SINKS = 8;
+  private static final int HEADER_BYTES = 9;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final boolean fsync;
+  private final byte deliveredMask;
+  private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+  private final ConcurrentSkipListMap<Long, OutboxEntry> pending = new ConcurrentSkipListMap<>();
+  private Segment active;
+
+  /**
+   * @param sinks number of sinks every message has to be delivered to
+   */
+  public Outbox(Path directory, int segmentBytes, boolean fsync, int sinks) {
+    if (sinks < 1 || sinks > MAX_SINKS) {
+      throw new IllegalArgumentException("Between 1 and " + MAX_SINKS + " sinks supported: " + sinks);
+    }
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.fsync = fsync;
+    this.deliveredMask = (byte) ((1 << sinks) - 1);
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error opening outbox " + directory, e);
+    }
+  }
+
+  /**
+   * Writes the message to the outbox, and to disk if fsync is enabled, before returning.
+   */
+  public synchronized OutboxEntry append(Message message) {
+    byte[] payload = encode(message);
+    int entryBytes = HEADER_BYTES + payload.length;
+    try {
+      if (active == null || active.buffer.remaining() < entryBytes + 4) {
+        roll(entryBytes + 4);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error creating outbox segment in " + directory, e);
+    }
+
+    MappedByteBuffer buffer = active.buffer;
+    int offset = buffer.position();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+    buffer.position(offset + 4);
+    buffer.putInt((int) crc.getValue());
+    buffer.put((byte) 0);
+    buffer.put(payload);
+    buffer.putInt(offset, payload.length);
+    if (fsync) {
+      buffer.force(offset, entryBytes);
+    }
+
+    OutboxEntry entry = new OutboxEntry(OutboxEntry.position(active.number, offset), message);
+    active.pendingEntries++;
+    pending.put(entry.position(), entry);
+    return entry;
+  }
+
+  /**
+   * @return true if the sink had not delivered the entry yet
+   */
+  public synchronized boolean markDelivered(OutboxEntry entry, int sink) {
+    Segment segment = segments.get(entry.segment());
+    if (segment == null) {
+      return false;
+    }
+
+    int statusIndex = entry.offset() + 8;
+    byte status = segment.buffer.get(statusIndex);
+    byte newStatus = (byte) (status | (1 << sink));
+    if (status == newStatus) {
+      return false;
+    }
+    segment.buffer.put(statusIndex, newStatus);
+
+    if ((newStatus & deliveredMask) == deliveredMask) {
+      pending.remove(entry.position());
+      segment.pendingEntries--;
+      deleteIfDelivered(segment);
+    }
+    return true;
+  }
+
+  public synchronized boolean isDelivered(OutboxEntry entry, int sink) {
+    Segment segment = segments.get(entry.segment());
+    return segment == null || (segment.buffer.get(entry.offset() + 8) & (1 << sink)) != 0;
+  }
+
+  /**
+   * @return the entries not delivered to all the sinks, oldest first
+   */
+  public Collection<OutboxEntry> pending() {
+    return pending.values();
+  }
+
+  public int pendingCount() {
+    return pending.size();
+  }
+
+  @Override
+  public synchronized void close() {
+    // mapped buffers are released when garbage collected, there's nothing to close
+    segments.values().forEach(segment -> segment.buffer.force());
+    segments.clear();
+    active = null;
+  }
+
+  private void recover() throws IOException {
+    List<Path> files;
+    try (Stream<Path> list = Files.list(directory)) {
+      files = list.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+          && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+        .toList();
+    }
+
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+      Segment segment = open(number, file, (int) Files.size(file));
+      segments.put(number, segment);
+      readEntries(segment);
+    }
+
+    if (!segments.isEmpty()) {
+      active = segments.lastEntry().getValue();
+      for (Segment segment : List.copyOf(segments.values())) {
+        deleteIfDelivered(segment);
+      }
+    }
+    if (!pending.isEmpty()) {
+      log.info("Recovered {} pending notifications from outbox {}", pending.size(), directory);
+    }
+  }
+
+  private void readEntries(Segment segment) {
+    MappedByteBuffer buffer = segment.buffer;
+    int offset = 0;
+    while (offset + HEADER_BYTES <= buffer.capacity()) {
+      int length = buffer.getInt(offset);
+      if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+        break;
+      }
+
+      byte[] payload = new byte[length];
+      buffer.get(offset + HEADER_BYTES, payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+        log.warn("Discarding corrupted outbox entry at {} of segment {}", offset, segment.number);
+        break;
+      }
+
+      if ((buffer.get(offset + 8) & deliveredMask) != deliveredMask) {
+        OutboxEntry entry = new OutboxEntry(OutboxEntry.position(segment.number, offset), decode(payload));
+        pending.put(entry.position(), entry);
+        segment.pendingEntries++;
+      }
+      offset += HEADER_BYTES + length;
+    }
+    buffer.position(offset);
+  }
+
+  private void roll(int minBytes) throws IOException {
+    int number = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+    Segment previous = active;
+    active = open(number, directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX), Math.max(segmentBytes, minBytes));
+    segments.put(number, active);
+    if (previous != null) {
+      deleteIfDelivered(previous);
+    }
+  }
+
+  private Segment open(int number, Path file, int size) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return new Segment(number, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+  }
+
+  private void deleteIfDelivered(Segment segment) {
+    if (segment.pendingEntries == 0 && segment != active) {
+      segments.remove(segment.number);
+      try {
+        Files.deleteIfExists(segment.file);
+      } catch (IOException e) {
+        log.warn("Error deleting outbox segment {}: {}", segment.file, e.getMessage());
+      }
+    }
+  }
+
+  private static byte[] encode(Message message) {
+    byte[][] fields = {bytes(message.subject()), bytes(message.body()), bytes(message.type()), bytes(message.asset()),
+      bytes(message.amount())};
+    int size = 1 + Long.BYTES;
+    for (byte[] field : fields) {
+      size += Integer.BYTES + (field != null ? field.length : 0);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    // bit 0: operation id present, bits 1-2: priority
+    buffer.put((byte) ((message.priority().ordinal() << 1) | (message.operationId() != null ? 1 : 0)));
+    buffer.putLong(message.operationId() != null ? message.operationId() : 0);
+    for (byte[] field : fields) {
+      if (field == null) {
+        buffer.putInt(-1);
+      } else {
+        buffer.putInt(field.length).put(field);
+      }
+    }
+    return buffer.array();
+  }
+
+  private static Message decode(byte[] payload) {
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    byte flags = buffer.get();
+    boolean hasOperationId = (flags & 1) != 0;
+    Priority priority = Priority.values()[(flags >> 1) & 3];
+    long operationId = buffer.getLong();
+    return new Message(string(buffer), string(buffer), hasOperationId ? operationId : null, string(buffer), string(buffer),
+      string(buffer), priority);
+  }
+
+  private static byte[] bytes(String value) {
+    return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  private static String string(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static final class Segment {
+
+    private final int number;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private int pendingEntries;
+
+    private Segment(int number, Path file, MappedByteBuffer buffer) {
+      this.number = number;
+      this.file = file;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -0,0 +1,24 @@
+package com.sputnik.stellar.outbox;
+
+import com.sputnik.stellar.message.Message;
+
+/**
+ * A message in the outbox.
+ *
+ * @param position segment number in the high 32 bits and offset in the segment in the low ones, also the order of the
+ *                 entries
+ */
+public record OutboxEntry(long position, Message message) {
+
+  int segment() {
+    return (int) (position >>> 32);
+  }
+
+  int offset() {
+    return (int) position;
+  }
+
+  static long position(int segment, int offset) {
+    return ((long) segment << 32) | offset;
+  }
+}
@@ -0,0 +1,93 @@
+package com.sputnik.stellar.replay;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.Memo;
+import org.stellar.sdk.MemoHash;
+import org.stellar.sdk.MemoId;
+import org.stellar.sdk.MemoReturnHash;
+import org.stellar.sdk.MemoText;
+import org.stellar.sdk.responses.GsonSingleton;
+import org.stellar.sdk.responses.TransactionResponse;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Captures the operations received from Horizon to {@code <directory>/<account>.jsonl} files, one JSON object per line,
+ * to be replayed with {@link OperationReplay}.
+ */
+@Slf4j
+public class OperationRecorder implements AutoCloseable {
+
+  private final Path directory;
+  private final Map<String, Writer> writers = new HashMap<>();
+
+  public OperationRecorder(Path directory) throws IOException {
+    this.directory = Files.createDirectories(directory);
+  }
+
+  public synchronized void record(String accountId, OperationResponse operation) {
+    try {
+      Writer writer = writers.get(accountId);
+      if (writer == null) {
+        Path file = directory.resolve(accountId + ".jsonl");
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        writers.put(accountId, writer);
+        log.info("Capturing operations of {} to {}", accountId, file);
+      }
+
+      writer.write(GsonSingleton.getInstance().toJson(toJson(operation)));
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException e) {
+      log.warn("Error capturing operation {} of {}: {}", operation.getId(), accountId, e.getMessage());
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    writers.forEach((accountId, writer) -> {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        log.warn("Error closing capture of {}: {}", accountId, e.getMessage());
+      }
+    });
+    writers.clear();
+  }
+
+  private static JsonElement toJson(OperationResponse operation) {
+    JsonElement json = GsonSingleton.getInstance().toJsonTree(operation);
+    TransactionResponse transaction = operation.getTransaction();
+    if (transaction != null && json.getAsJsonObject().get("transaction") instanceof JsonObject transactionJson) {
+      // the memo is decoded by the SDK, write it back the way Horizon sends it
+      Memo memo = transaction.getMemo();
+      if (memo instanceof MemoText memoText) {
+        transactionJson.addProperty("memo_type", "text");
+        transactionJson.addProperty("memo", memoText.getText());
+      } else if (memo instanceof MemoId memoId) {
+        transactionJson.addProperty("memo_type", "id");
+        transactionJson.addProperty("memo", String.valueOf(memoId.getId()));
+      } else if (memo instanceof MemoReturnHash memoReturnHash) {
+        transactionJson.addProperty("memo_type", "return");
+        transactionJson.addProperty("memo", Base64.getEncoder().encodeToString(memoReturnHash.getBytes()));
+      } else if (memo instanceof MemoHash memoHash) {
+        transactionJson.addProperty("memo_type", "hash");
+        transactionJson.addProperty("memo", Base64.getEncoder().encodeToString(memoHash.getBytes()));
+      } else {
+        transactionJson.addProperty("memo_type", "none");
+        transactionJson.remove("memo");
+      }
+    }
+    return json;
+  }
+}
@@ -0,0 +1,116 @@
+package com.sputnik.stellar.replay;
+
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.responses.GsonSingleton;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Reads a recording of Horizon operation responses, one JSON object per line (as written by {@link OperationRecorder}),
+ * and hands them over one at a time, without loading the whole file.
+ */
+@Slf4j
+public class OperationReplay {
+
+  private static final long PROGRESS_EVENTS = 10_000;
+
+  public enum Pace {
+    /** As fast as the handler takes them. */
+    FAST,
+    /** Keeping the time between operations of the recording, from their creation dates. */
+    RECORDED
+  }
+
+  private final Path file;
+  private final Pace pace;
+
+  public OperationReplay(Path file, Pace pace) {
+    this.file = file;
+    this.pace = pace;
+  }
+
+  public ReplayStats replay(Consumer<OperationResponse> handler) throws IOException {
+    long start = System.nanoTime();
+    long operations = 0;
+    long skipped = 0;
+    Instant firstCreation = null;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      long lineNumber = 0;
+      while (!Thread.currentThread().isInterrupted() && (line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank()) {
+          continue;
+        }
+
+        OperationResponse operation;
+        try {
+          operation = GsonSingleton.getInstance().fromJson(line, OperationResponse.class);
+        } catch (JsonParseException e) {
+          log.warn("Skipping line {} of {}: {}", lineNumber, file, e.getMessage());
+          skipped++;
+          continue;
+        }
+
+        if (pace == Pace.RECORDED) {
+          // relative to the first operation, so the time spent by the handler doesn't add up
+          Instant creation = creationOf(operation);
+          if (firstCreation == null) {
+            firstCreation = creation;
+          } else if (creation != null) {
+            awaitNanos(start + Duration.between(firstCreation, creation).toNanos());
+          }
+        }
+
+        handler.accept(operation);
+        if (++operations % PROGRESS_EVENTS == 0) {
+          log.info("Replayed {} operations, {} events/sec", operations,
+            ReplayStats.rate(operations, Duration.ofNanos(System.nanoTime() - start)));
+        }
+      }
+    }
+
+    return new ReplayStats(operations, skipped, Duration.ofNanos(System.nanoTime() - start));
+  }
+
+  private static Instant creationOf(OperationResponse operation) {
+    try {
+      return operation.getCreatedAt() != null ? Instant.parse(operation.getCreatedAt()) : null;
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static void awaitNanos(long deadline) {
+    long remaining = deadline - System.nanoTime();
+    if (remaining > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public record ReplayStats(long operations, long skipped, Duration elapsed) {
+
+    public long eventsPerSecond() {
+      return rate(operations, elapsed);
+    }
+
+    static long rate(long events, Duration elapsed) {
+      long nanos = Math.max(elapsed.toNanos(), 1);
+      return (long) (events * 1e9 / nanos);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.sputnik.stellar.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Assigns keys to members hashing both on a ring: a key belongs to the first member point after its hash. Every member
+ * has many points spread around the ring, so the keys are balanced between members and a member joining or leaving only
+ * moves its share of the keys.
+ */
+public class ConsistentHashRing {
+
+  private static final int POINTS_PER_MEMBER = 128;
+
+  private final Set<String> members;
+  private final TreeMap<Long, String> points = new TreeMap<>();
+
+  public ConsistentHashRing(Collection<String> members) {
+    if (members.isEmpty()) {
+      throw new IllegalArgumentException("A ring needs at least one member");
+    }
+    this.members = new TreeSet<>(members);
+    for (String member : this.members) {
+      for (int point = 0; point < POINTS_PER_MEMBER; point++) {
+        points.put(hash(member + "#" + point), member);
+      }
+    }
+  }
+
+  public Set<String> getMembers() {
+    return members;
+  }
+
+  public String ownerOf(String key) {
+    Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+    return point != null ? point.getValue() : points.firstEntry().getValue();
+  }
+
+  /**
+   * 64-bit FNV-1a of the UTF-8 bytes with a final avalanche, the same on every instance whatever its JVM.
+   */
+  static long hash(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
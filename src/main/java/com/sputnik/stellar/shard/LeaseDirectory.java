@@ -0,0 +1,239 @@
+package com.sputnik.stellar.shard;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Instance heartbeats and account leases kept as small files in a directory shared by all the instances (a local or
+ * network file system supporting hard links and atomic renames):
+ * <ul>
+ *   <li>{@code instances/<instance>}: the time until which the instance is alive, rewritten on every heartbeat.</li>
+ *   <li>{@code leases/<account>}: the owner of the account, until when, and the cursor where the account is.</li>
+ * </ul>
+ * Files are replaced writing a temporary file and renaming it, and a lease is only created by hard linking it, which fails
+ * if another instance created it first. The times are compared across instances, so their clocks must be synchronized.
+ * <p>
+ * Renewing or releasing a lease reads it and then replaces it, which another instance taking it over in between would not
+ * notice. So a lease is only renewed or released while it has more than a quarter of its ttl left, far from the expiry
+ * after which it can be taken over; past that it is lost, even if nobody has taken it yet.
+ */
+@Slf4j
+public class LeaseDirectory implements AutoCloseable {
+
+  private final Path instances;
+  private final Path leases;
+  private final String instanceId;
+  private final long ttlMillis;
+  private final long safetyMillis;
+
+  /**
+   * @param ttl time an instance is considered alive, and its leases held, after its last heartbeat
+   */
+  public LeaseDirectory(Path directory, String instanceId, Duration ttl) {
+    this.instances = directory.resolve("instances");
+    this.leases = directory.resolve("leases");
+    this.instanceId = instanceId;
+    this.ttlMillis = ttl.toMillis();
+    this.safetyMillis = ttlMillis / 4;
+    try {
+      Files.createDirectories(instances);
+      Files.createDirectories(leases);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error creating lease directory " + directory, e);
+    }
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public void heartbeat() throws IOException {
+    replace(instances.resolve(instanceId), Long.toString(System.currentTimeMillis() + ttlMillis));
+  }
+
+  /**
+   * @return the instances whose last heartbeat hasn't expired, this one included
+   */
+  public Set<String> liveInstances() throws IOException {
+    long now = System.currentTimeMillis();
+    Set<String> live = new HashSet<>();
+    live.add(instanceId);
+    try (Stream<Path> files = Files.list(instances)) {
+      for (Path file : files.filter(LeaseDirectory::isEntry).toList()) {
+        String content = readIfExists(file);
+        try {
+          if (content != null && Long.parseLong(content.trim()) >= now) {
+            live.add(file.getFileName().toString());
+          }
+        } catch (NumberFormatException e) {
+          log.warn("Ignoring unreadable heartbeat {}", file);
+        }
+      }
+    }
+    return live;
+  }
+
+  /**
+   * @return the lease of the account, null if it never had one
+   */
+  public Lease read(String accountId) throws IOException {
+    return Lease.parse(readIfExists(leases.resolve(accountId)));
+  }
+
+  /**
+   * Takes the lease of the account if it's free: never taken, expired or released.
+   *
+   * @return the lease taken, with the cursor left by the previous owner, or null if another instance holds it
+   */
+  public Lease tryAcquire(String accountId) throws IOException {
+    Path file = leases.resolve(accountId);
+    Lease current = read(accountId);
+    if (current != null && current.isHeldBy(instanceId)) {
+      return renew(accountId, current.cursor()) ? read(accountId) : null;
+    }
+    if (current != null && !current.isExpired()) {
+      return null;
+    }
+
+    String cursor = null;
+    if (current != null) {
+      // moved aside so only one instance can take it over: the others don't find it to move
+      Path stale = leases.resolve("." + accountId + "." + instanceId + ".stale");
+      try {
+        Files.move(file, stale, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (NoSuchFileException e) {
+        return null;
+      }
+      Lease moved = Lease.parse(readIfExists(stale));
+      if (!current.equals(moved)) {
+        // taken over by another instance after being read, put it back
+        restore(file, stale);
+        return null;
+      }
+      Files.deleteIfExists(stale);
+      cursor = current.cursor();
+    }
+
+    Lease lease = new Lease(instanceId, System.currentTimeMillis() + ttlMillis, cursor);
+    Path tmp = leases.resolve("." + accountId + "." + instanceId + ".tmp");
+    Files.writeString(tmp, lease.format(), StandardCharsets.UTF_8);
+    try {
+      Files.createLink(file, tmp);
+      return lease;
+    } catch (FileAlreadyExistsException e) {
+      return null;
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * Extends the lease of the account, saving its cursor.
+   *
+   * @return false if the lease is no longer held by this instance, or is too close to its expiry to be renewed safely
+   */
+  public boolean renew(String accountId, String cursor) throws IOException {
+    Lease current = read(accountId);
+    if (!isSafelyHeld(current)) {
+      return false;
+    }
+    replace(leases.resolve(accountId), new Lease(instanceId, System.currentTimeMillis() + ttlMillis, cursor).format());
+    return true;
+  }
+
+  /**
+   * Leaves the lease of the account expired, with its cursor for the next owner. A lease too close to its expiry is left
+   * to expire, with the cursor of its last renewal.
+   */
+  public void release(String accountId, String cursor) throws IOException {
+    Lease current = read(accountId);
+    if (isSafelyHeld(current)) {
+      replace(leases.resolve(accountId), new Lease(instanceId, 0, cursor).format());
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      Files.deleteIfExists(instances.resolve(instanceId));
+    } catch (IOException e) {
+      log.warn("Error removing heartbeat of {}: {}", instanceId, e.getMessage());
+    }
+  }
+
+  private boolean isSafelyHeld(Lease lease) {
+    return lease != null && lease.isHeldBy(instanceId) && lease.expiresAtMillis() - System.currentTimeMillis() > safetyMillis;
+  }
+
+  private void restore(Path file, Path stale) throws IOException {
+    try {
+      Files.createLink(file, stale);
+    } catch (FileAlreadyExistsException e) {
+      // already taken again
+    } finally {
+      Files.deleteIfExists(stale);
+    }
+  }
+
+  private void replace(Path file, String content) throws IOException {
+    Path tmp = file.resolveSibling("." + file.getFileName() + "." + instanceId + ".tmp");
+    Files.writeString(tmp, content, StandardCharsets.UTF_8);
+    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static String readIfExists(Path file) throws IOException {
+    try {
+      return Files.readString(file, StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static boolean isEntry(Path file) {
+    return !file.getFileName().toString().startsWith(".");
+  }
+
+  /**
+   * @param expiresAtMillis 0 once released
+   * @param cursor          paging token of the last operation processed by the owner, null if none yet
+   */
+  public record Lease(String owner, long expiresAtMillis, String cursor) {
+
+    boolean isHeldBy(String instanceId) {
+      return owner.equals(instanceId) && !isExpired();
+    }
+
+    boolean isExpired() {
+      return expiresAtMillis < System.currentTimeMillis();
+    }
+
+    String format() {
+      return owner + "\n" + expiresAtMillis + "\n" + Objects.toString(cursor, "") + "\n";
+    }
+
+    static Lease parse(String content) {
+      if (content == null) {
+        return null;
+      }
+      String[] lines = content.split("\n", -1);
+      try {
+        return new Lease(lines[0], Long.parseLong(lines[1]), lines.length > 2 && !lines[2].isEmpty() ? lines[2] : null);
+      } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+        // a lease is only written renaming a complete file, this one is not a lease
+        return new Lease("", 0, null);
+      }
+    }
+  }
+}
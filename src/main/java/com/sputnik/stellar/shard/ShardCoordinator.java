@@ -0,0 +1,160 @@
+package com.sputnik.stellar.shard;
+
+import com.sputnik.stellar.shard.LeaseDirectory.Lease;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits the monitored accounts between the running instances, so each account is notified by only one of them. On
+ * every heartbeat the coordinator hashes the accounts on a {@link ConsistentHashRing} of the live instances, releases the
+ * accounts that now belong to another instance, renews the leases of the ones it keeps, saving their cursors in them,
+ * and takes the free leases of the accounts that belong to it.
+ * <p>
+ * A joining instance gets its accounts once their owners release them, on their next heartbeat, and goes on from the
+ * cursors left in the leases. The accounts of an instance that dies are taken when its heartbeat and leases expire, from
+ * the cursors of their last renewal, so the operations of the last heartbeat may be notified again.
+ * <p>
+ * The listener is called from a thread of its own, in order, so a long catch-up doesn't delay the heartbeats. Released
+ * accounts keep their leases renewed until the listener has stopped them.
+ */
+@Slf4j
+public class ShardCoordinator implements AutoCloseable {
+
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+  private final LeaseDirectory leases;
+  private final List<String> accounts;
+  private final UnaryOperator<String> cursors;
+  private final ShardListener listener;
+  private final Duration heartbeat;
+  private final Set<String> owned = ConcurrentHashMap.newKeySet();
+  private final Set<String> releasing = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "shard-coordinator");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ExecutorService accountChanges = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "shard-accounts");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private ConsistentHashRing ring;
+
+  /**
+   * @param cursors current paging token of an account, saved in its lease
+   */
+  public ShardCoordinator(LeaseDirectory leases, List<String> accounts, UnaryOperator<String> cursors, ShardListener listener,
+    Duration heartbeat) {
+    this.leases = leases;
+    this.accounts = accounts;
+    this.cursors = cursors;
+    this.listener = listener;
+    this.heartbeat = heartbeat;
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::rebalance, 0, heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  public Set<String> getOwnedAccounts() {
+    return Set.copyOf(owned);
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    try {
+      scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      owned.forEach(this::release);
+      accountChanges.shutdown();
+      if (!accountChanges.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("Accounts not released in {} seconds, their leases will expire", CLOSE_TIMEOUT_SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    leases.close();
+  }
+
+  private void rebalance() {
+    try {
+      leases.heartbeat();
+      Set<String> live = leases.liveInstances();
+      if (ring == null || !ring.getMembers().equals(live)) {
+        ring = new ConsistentHashRing(live);
+        log.info("Instances {}, this one is {}", ring.getMembers(), leases.getInstanceId());
+      }
+    } catch (Exception e) {
+      log.warn("Error sending heartbeat: {}", e.getMessage());
+      return;
+    }
+
+    for (String accountId : accounts) {
+      try {
+        boolean assigned = ring.ownerOf(accountId).equals(leases.getInstanceId());
+        if (releasing.contains(accountId)) {
+          leases.renew(accountId, cursors.apply(accountId));
+        } else if (owned.contains(accountId) && !assigned) {
+          log.info("Account {} moved to {}, releasing it", accountId, ring.ownerOf(accountId));
+          release(accountId);
+        } else if (owned.contains(accountId) && !leases.renew(accountId, cursors.apply(accountId))) {
+          log.warn("Lease of {} lost, stopping it", accountId);
+          owned.remove(accountId);
+          accountChanges.execute(() -> notifyReleased(accountId));
+        } else if (!owned.contains(accountId) && assigned) {
+          acquire(accountId);
+        }
+      } catch (IOException e) {
+        log.warn("Error updating the lease of {}: {}", accountId, e.getMessage());
+      }
+    }
+  }
+
+  private void acquire(String accountId) throws IOException {
+    Lease lease = leases.tryAcquire(accountId);
+    if (lease != null) {
+      owned.add(accountId);
+      log.info("Account {} acquired, from cursor {}", accountId, lease.cursor());
+      accountChanges.execute(() -> {
+        try {
+          listener.accountAcquired(accountId, lease.cursor());
+        } catch (Exception e) {
+          log.error("Error starting account {}", accountId, e);
+        }
+      });
+    }
+  }
+
+  private void release(String accountId) {
+    owned.remove(accountId);
+    releasing.add(accountId);
+    accountChanges.execute(() -> {
+      notifyReleased(accountId);
+      try {
+        leases.release(accountId, cursors.apply(accountId));
+      } catch (IOException e) {
+        log.warn("Error releasing the lease of {}, it will expire: {}", accountId, e.getMessage());
+      } finally {
+        releasing.remove(accountId);
+      }
+    });
+  }
+
+  private void notifyReleased(String accountId) {
+    try {
+      listener.accountReleased(accountId);
+    } catch (Exception e) {
+      log.error("Error stopping account {}", accountId, e);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.sputnik.stellar.shard;
+
+/**
+ * Starts and stops the monitoring of the accounts as this instance gains and loses them.
+ */
+public interface ShardListener {
+
+  /**
+   * @param cursor paging token where the previous owner left the account, null if it had none
+   */
+  void accountAcquired(String accountId, String cursor);
+
+  /**
+   * Stops monitoring the account. When it returns, the cursor of the account is final and is handed over to the next
+   * owner.
+   */
+  void accountReleased(String accountId);
+}
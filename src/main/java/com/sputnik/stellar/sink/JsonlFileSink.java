@@ -0,0 +1,51 @@
+package com.sputnik.stellar.sink;
+
+import com.sputnik.stellar.message.Message;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends every message as a JSON line to a file.
+ */
+@Slf4j
+public class JsonlFileSink implements NotificationSink {
+
+  private final Path file;
+  private final Writer writer;
+
+  public JsonlFileSink(Path file) {
+    this.file = file;
+    try {
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error opening notifications file " + file, e);
+    }
+  }
+
+  @Override
+  public String name() {
+    return "file";
+  }
+
+  @Override
+  public synchronized void send(Message message) throws IOException {
+    writer.write(MessageJson.toJson(message));
+    writer.write('\n');
+    writer.flush();
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      writer.close();
+    } catch (IOException e) {
+      log.warn("Error closing notifications file {}: {}", file, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.sputnik.stellar.sink;
+
+import com.google.gson.JsonObject;
+import com.sputnik.stellar.message.Message;
+
+final class MessageJson {
+
+  private MessageJson() {
+  }
+
+  static String toJson(Message message) {
+    JsonObject json = new JsonObject();
+    json.addProperty("timestamp", System.currentTimeMillis());
+    json.addProperty("subject", message.subject());
+    json.addProperty("body", message.body());
+    json.addProperty("operationId", message.operationId());
+    json.addProperty("type", message.type());
+    json.addProperty("asset", message.asset());
+    json.addProperty("amount", message.amount());
+    return json.toString();
+  }
+}
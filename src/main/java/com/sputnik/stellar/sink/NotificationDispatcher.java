@@ -0,0 +1,336 @@
+package com.sputnik.stellar.sink;
+
+import com.sputnik.stellar.message.DigestAggregator;
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.Priority;
+import com.sputnik.stellar.metrics.NotifierMetrics;
+import com.sputnik.stellar.outbox.Outbox;
+import com.sputnik.stellar.outbox.OutboxEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends every message to all the sinks. Each sink has its own thread and a bounded queue per {@link Priority} lane, so a
+ * slow sink doesn't delay the others nor the stream, and its higher lanes are sent first. The sends of each sink, and of
+ * each recipient, can be rate limited; while the low priority messages pile up they are sent as a single digest.
+ * <p>
+ * Without an outbox, when a lane of a sink is full its new messages are dropped, and failed messages are not retried.
+ * With an {@link Outbox} the messages are written to it before being queued: failed sends are retried with exponential
+ * backoff, and the messages that could not be queued or sent are taken again from the outbox periodically, until every
+ * sink has sent them.
+ */
+@Slf4j
+public class NotificationDispatcher implements AutoCloseable {
+
+  private static final long CLOSE_TIMEOUT_SECONDS = 10;
+  private static final int MAX_ATTEMPTS = 5;
+  private static final long INITIAL_BACKOFF_MILLIS = 1000;
+  private static final long MAX_BACKOFF_MILLIS = 30_000;
+  private static final long OUTBOX_DRAIN_SECONDS = 60;
+  private static final int LOW_DIGEST_BACKLOG = 10;
+  private static final int MAX_DIGESTED = 100;
+
+  private final List<SinkWorker> workers;
+  private final Outbox outbox;
+  private final NotifierMetrics metrics;
+  private final RateLimits rateLimits;
+  private final Map<String, TokenBucket> recipientBuckets = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService drainer;
+
+  public NotificationDispatcher(List<NotificationSink> sinks, int queueCapacity, NotifierMetrics metrics) {
+    this(sinks, queueCapacity, RateLimits.NONE, null, metrics);
+  }
+
+  public NotificationDispatcher(List<NotificationSink> sinks, int queueCapacity, Outbox outbox, NotifierMetrics metrics) {
+    this(sinks, queueCapacity, RateLimits.NONE, outbox, metrics);
+  }
+
+  /**
+   * @param queueCapacity messages each lane of a sink can hold
+   * @param outbox        durable outbox of the messages, with a delivered mark per sink in the order of the list
+   */
+  public NotificationDispatcher(List<NotificationSink> sinks, int queueCapacity, RateLimits rateLimits, Outbox outbox,
+    NotifierMetrics metrics) {
+    this.metrics = metrics;
+    this.outbox = outbox;
+    this.rateLimits = rateLimits;
+    this.workers = IntStream.range(0, sinks.size()).mapToObj(index -> new SinkWorker(sinks.get(index), index, queueCapacity)).toList();
+    if (outbox != null) {
+      drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-drainer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      // the first run sends the messages left pending by the previous execution
+      drainer.scheduleWithFixedDelay(this::drainOutbox, 0, OUTBOX_DRAIN_SECONDS, TimeUnit.SECONDS);
+    } else {
+      drainer = null;
+    }
+  }
+
+  public void dispatch(Message message) {
+    if (message == null) {
+      return;
+    }
+
+    if (outbox != null) {
+      OutboxEntry entry = outbox.append(message);
+      workers.forEach(worker -> submit(worker, entry));
+      return;
+    }
+
+    for (SinkWorker worker : workers) {
+      if (!worker.offer(new Delivery(message, null))) {
+        log.warn("{} lane of sink {} full, dropping message '{}'", message.priority(), worker.sink.name(), message.subject());
+        metrics.notificationDropped(worker.sink.name());
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (drainer != null) {
+      drainer.shutdownNow();
+    }
+    workers.forEach(SinkWorker::close);
+    for (SinkWorker worker : workers) {
+      try {
+        worker.thread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        if (worker.thread.isAlive()) {
+          log.warn("Sink {} didn't send its pending messages in {} seconds", worker.sink.name(), CLOSE_TIMEOUT_SECONDS);
+          worker.thread.interrupt();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      worker.sink.close();
+    }
+  }
+
+  private void drainOutbox() {
+    try {
+      for (OutboxEntry entry : outbox.pending()) {
+        for (SinkWorker worker : workers) {
+          if (!outbox.isDelivered(entry, worker.index)) {
+            submit(worker, entry);
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.warn("Error draining outbox: {}", e.getMessage(), e);
+    }
+  }
+
+  private void submit(SinkWorker worker, OutboxEntry entry) {
+    if (!worker.inFlight.add(entry.position())) {
+      return;
+    }
+
+    if (!worker.offer(new Delivery(entry.message(), entry))) {
+      // still in the outbox, it will be queued again by the next drain
+      worker.inFlight.remove(entry.position());
+      log.debug("{} lane of sink {} full, message '{}' kept in the outbox", entry.message().priority(), worker.sink.name(),
+        entry.message().subject());
+    }
+  }
+
+  private void deliver(SinkWorker worker, List<Delivery> deliveries) {
+    Message message;
+    if (deliveries.size() == 1) {
+      message = deliveries.get(0).message();
+    } else {
+      message = DigestAggregator.summarize(deliveries.stream().map(Delivery::message).toList()).withPriority(Priority.LOW);
+      metrics.notificationsDigested(worker.sink.name(), deliveries.size());
+    }
+
+    try {
+      if (outbox == null) {
+        send(worker.sink, message);
+        return;
+      }
+
+      long backoff = INITIAL_BACKOFF_MILLIS;
+      for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+        if (send(worker.sink, message)) {
+          deliveries.forEach(delivery -> outbox.markDelivered(delivery.entry(), worker.index));
+          return;
+        }
+        if (attempt < MAX_ATTEMPTS) {
+          TimeUnit.MILLISECONDS.sleep(backoff);
+          backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+        }
+      }
+      log.warn("Message '{}' not sent to {} after {} attempts, kept in the outbox", message.subject(), worker.sink.name(),
+        MAX_ATTEMPTS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (outbox != null) {
+        deliveries.forEach(delivery -> worker.inFlight.remove(delivery.entry().position()));
+      }
+    }
+  }
+
+  private boolean send(NotificationSink sink, Message message) {
+    long start = System.nanoTime();
+    try {
+      sink.send(message);
+      metrics.notificationSent(sink.name(), System.nanoTime() - start);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      metrics.notificationFailed(sink.name());
+      log.error("Error sending message '{}' to {}: {}", message.subject(), sink.name(), e.getMessage(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Waits until both the sink and its current recipient can send a message, and takes their tokens.
+   */
+  private void awaitRate(SinkWorker worker) throws InterruptedException {
+    String recipient = worker.sink.recipient();
+    TokenBucket recipientBucket = recipient != null && rateLimits.recipientPerMinute() > 0
+      ? recipientBuckets.computeIfAbsent(recipient, r -> new TokenBucket(rateLimits.recipientPerMinute(), rateLimits.burst()))
+      : null;
+    long wait;
+    do {
+      wait = Math.max(worker.bucket != null ? worker.bucket.nanosUntilAvailable() : 0,
+        recipientBucket != null ? recipientBucket.nanosUntilAvailable() : 0);
+      TimeUnit.NANOSECONDS.sleep(wait);
+    } while (wait > 0);
+
+    if (worker.bucket != null) {
+      worker.bucket.take();
+    }
+    if (recipientBucket != null) {
+      recipientBucket.take();
+    }
+  }
+
+  /**
+   * @param entry null without outbox
+   */
+  private record Delivery(Message message, OutboxEntry entry) {
+
+  }
+
+  private final class SinkWorker {
+
+    private final NotificationSink sink;
+    private final int index;
+    private final int laneCapacity;
+    private final List<ArrayDeque<Delivery>> lanes = new ArrayList<>();
+    private final TokenBucket bucket;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Thread thread;
+    private boolean closing;
+
+    private SinkWorker(NotificationSink sink, int index, int laneCapacity) {
+      this.sink = sink;
+      this.index = index;
+      this.laneCapacity = laneCapacity;
+      for (int lane = 0; lane < Priority.values().length; lane++) {
+        lanes.add(new ArrayDeque<>());
+      }
+      this.bucket = rateLimits.sinkPerMinute() > 0 ? new TokenBucket(rateLimits.sinkPerMinute(), rateLimits.burst()) : null;
+      this.thread = new Thread(this::run, "sink-" + sink.name());
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private boolean offer(Delivery delivery) {
+      lock.lock();
+      try {
+        ArrayDeque<Delivery> lane = lanes.get(delivery.message().priority().ordinal());
+        if (closing || lane.size() >= laneCapacity) {
+          return false;
+        }
+        lane.add(delivery);
+        notEmpty.signal();
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void close() {
+      lock.lock();
+      try {
+        closing = true;
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void run() {
+      try {
+        while (awaitMessages()) {
+          // the rate is waited for before choosing the message, so the ones queued meanwhile in higher lanes go first
+          awaitRate(this);
+          deliver(this, poll());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * @return false once closed and with every lane empty
+     */
+    private boolean awaitMessages() throws InterruptedException {
+      lock.lock();
+      try {
+        while (lanes.stream().allMatch(ArrayDeque::isEmpty)) {
+          if (closing) {
+            return false;
+          }
+          notEmpty.await();
+        }
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return the first message of the highest lane, or all the low priority ones if they are piling up
+     */
+    private List<Delivery> poll() {
+      lock.lock();
+      try {
+        for (Priority priority : Priority.values()) {
+          ArrayDeque<Delivery> lane = lanes.get(priority.ordinal());
+          if (priority == Priority.LOW && lane.size() >= Math.min(LOW_DIGEST_BACKLOG, laneCapacity)) {
+            List<Delivery> digested = new ArrayList<>();
+            while (!lane.isEmpty() && digested.size() < MAX_DIGESTED) {
+              digested.add(lane.poll());
+            }
+            return digested;
+          } else if (!lane.isEmpty()) {
+            return List.of(lane.poll());
+          }
+        }
+        throw new IllegalStateException("No message queued");
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
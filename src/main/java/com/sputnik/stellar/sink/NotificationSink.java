@@ -0,0 +1,27 @@
+package com.sputnik.stellar.sink;
+
+import com.sputnik.stellar.message.Message;
+
+/**
+ * Destination of the notifications. Every sink is called from its own thread, one message at a time.
+ */
+public interface NotificationSink extends AutoCloseable {
+
+  /**
+   * @return name of the sink in logs and metrics
+   */
+  String name();
+
+  void send(Message message) throws Exception;
+
+  /**
+   * @return the address the messages are sent to, rate limited on its own, or null if the sink has none
+   */
+  default String recipient() {
+    return null;
+  }
+
+  @Override
+  default void close() {
+  }
+}
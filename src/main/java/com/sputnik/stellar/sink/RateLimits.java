@@ -0,0 +1,10 @@
+package com.sputnik.stellar.sink;
+
+/**
+ * Messages per minute each sink, and each recipient, can be sent (0 for no limit), in bursts of up to {@code burst}
+ * messages.
+ */
+public record RateLimits(int sinkPerMinute, int recipientPerMinute, int burst) {
+
+  public static final RateLimits NONE = new RateLimits(0, 0, 1);
+}
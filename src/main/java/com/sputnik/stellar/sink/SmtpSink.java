@@ -0,0 +1,49 @@
+package com.sputnik.stellar.sink;
+
+import com.sputnik.stellar.mailer.Mailer;
+import com.sputnik.stellar.message.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+public class SmtpSink implements NotificationSink {
+
+  private final Mailer mailer;
+  private final InternetAddress from;
+  private volatile InternetAddress recipient;
+
+  public SmtpSink(Mailer mailer, InternetAddress from, InternetAddress recipient) {
+    this.mailer = mailer;
+    this.from = from;
+    this.recipient = recipient;
+  }
+
+  public void setRecipient(InternetAddress recipient) {
+    this.recipient = recipient;
+  }
+
+  @Override
+  public String name() {
+    return "smtp";
+  }
+
+  @Override
+  public String recipient() {
+    return recipient.getAddress();
+  }
+
+  @Override
+  public void send(Message msg) throws MessagingException {
+    javax.mail.Message message = new MimeMessage(mailer.getSession());
+    message.setSubject(msg.subject());
+    message.setFrom(from);
+    message.setRecipient(javax.mail.Message.RecipientType.TO, recipient);
+    message.setText(msg.body());
+    mailer.send(message);
+  }
+
+  @Override
+  public void close() {
+    mailer.close();
+  }
+}
@@ -0,0 +1,42 @@
+package com.sputnik.stellar.sink;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows {@code perMinute} events per minute on average, in bursts of up to {@code burst} events.
+ */
+final class TokenBucket {
+
+  private final double capacity;
+  private final double tokensPerNano;
+  private double tokens;
+  private long refilledAt = System.nanoTime();
+
+  TokenBucket(int perMinute, int burst) {
+    this.capacity = Math.max(burst, 1);
+    this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+    this.tokens = capacity;
+  }
+
+  /**
+   * @return 0 if an event is allowed now, otherwise the nanoseconds until it is
+   */
+  synchronized long nanosUntilAvailable() {
+    refill();
+    return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+  }
+
+  /**
+   * Takes a token, even if there is none left: the debt delays the next events.
+   */
+  synchronized void take() {
+    refill();
+    tokens -= 1;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+    refilledAt = now;
+  }
+}
@@ -0,0 +1,53 @@
+package com.sputnik.stellar.sink;
+
+import com.sputnik.stellar.message.Message;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * POSTs every message as a JSON object to an URL.
+ */
+public class WebhookSink implements NotificationSink {
+
+  private final HttpClient client;
+  private final URI url;
+  private final Duration timeout;
+  private final String authorization;
+
+  /**
+   * @param client        shared client, keeping the connections alive between messages
+   * @param authorization value of the Authorization header, null to not send it
+   */
+  public WebhookSink(HttpClient client, URI url, Duration timeout, String authorization) {
+    this.client = client;
+    this.url = url;
+    this.timeout = timeout;
+    this.authorization = authorization;
+  }
+
+  @Override
+  public String name() {
+    return "webhook";
+  }
+
+  @Override
+  public void send(Message message) throws IOException, InterruptedException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(url)
+      .timeout(timeout)
+      .header("Content-Type", "application/json")
+      .POST(HttpRequest.BodyPublishers.ofString(MessageJson.toJson(message), StandardCharsets.UTF_8));
+    if (authorization != null) {
+      request.header("Authorization", authorization);
+    }
+
+    HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    if (response.statusCode() / 100 != 2) {
+      throw new IOException("Webhook " + url + " answered " + response.statusCode());
+    }
+  }
+}
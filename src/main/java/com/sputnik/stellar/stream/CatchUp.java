@@ -0,0 +1,16 @@
+package com.sputnik.stellar.stream;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Delivers the operations of an account after its committed cursor, before its stream is opened.
+ */
+@FunctionalInterface
+public interface CatchUp {
+
+  /**
+   * @param cancelled true once the operations must no longer be delivered
+   * @return the paging token of the last delivered operation, where the stream has to start
+   */
+  String catchUp(String cursor, BooleanSupplier cancelled);
+}
@@ -0,0 +1,10 @@
+package com.sputnik.stellar.stream;
+
+import com.sputnik.stellar.message.RenderedOperation;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+@FunctionalInterface
+public interface OperationDelivery {
+
+  void deliver(String accountId, OperationResponse operation, RenderedOperation rendered);
+}
@@ -0,0 +1,13 @@
+package com.sputnik.stellar.stream;
+
+import com.sputnik.stellar.message.RenderedOperation;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+@FunctionalInterface
+public interface OperationRenderer {
+
+  /**
+   * @return the operation with its message, null if it must not be notified
+   */
+  RenderedOperation render(String accountId, OperationResponse operation);
+}
@@ -0,0 +1,109 @@
+package com.sputnik.stellar.stream;
+
+import com.sputnik.stellar.horizon.HorizonPool;
+import com.sputnik.stellar.message.RenderedOperation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.requests.RequestBuilder.Order;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Catches up an account from a stale cursor using the REST payments endpoint, before switching to the (one event at a
+ * time) stream. Pages are fetched at the maximum page size, the next page is fetched while the current one is processed,
+ * and the messages of a page are rendered in parallel and then delivered in order. Rendering may look up transactions in
+ * Horizon, so it has its own threads instead of the common pool.
+ */
+@Slf4j
+public class PaymentsBackfill implements AutoCloseable {
+
+  public static final int MAX_PAGE_SIZE = 200;
+  private static final int RENDER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+  private final HorizonPool horizon;
+  private final OperationRenderer renderer;
+  private final ExecutorService fetcher = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "backfill-fetcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ExecutorService renderers = Executors.newFixedThreadPool(RENDER_THREADS, runnable -> {
+    Thread thread = new Thread(runnable, "backfill-renderer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public PaymentsBackfill(HorizonPool horizon, OperationRenderer renderer) {
+    this.horizon = horizon;
+    this.renderer = renderer;
+  }
+
+  /**
+   * @param cancelled checked before every delivery, to stop the catch-up
+   * @return the paging token of the last delivered operation, where the stream has to start.
+   */
+  public String catchUp(String accountId, String cursor, OperationDelivery delivery, BooleanSupplier cancelled) {
+    long start = System.currentTimeMillis();
+    long operations = 0;
+    int pages = 0;
+    String lastPagingToken = cursor;
+    try {
+      List<OperationResponse> page = fetchPage(accountId, cursor);
+      while (!page.isEmpty() && !cancelled.getAsBoolean()) {
+        pages++;
+        CompletableFuture<List<OperationResponse>> nextPage = null;
+        if (page.size() == MAX_PAGE_SIZE) {
+          String nextCursor = page.get(page.size() - 1).getPagingToken();
+          nextPage = CompletableFuture.supplyAsync(() -> fetchPage(accountId, nextCursor), fetcher);
+        }
+
+        List<CompletableFuture<RenderedOperation>> rendered = new ArrayList<>(page.size());
+        for (OperationResponse operation : page) {
+          rendered.add(CompletableFuture.supplyAsync(() -> renderer.render(accountId, operation), renderers));
+        }
+        for (int i = 0; i < page.size(); i++) {
+          if (cancelled.getAsBoolean()) {
+            rendered.forEach(future -> future.cancel(false));
+            log.info("Catch-up of {} cancelled at {}", accountId, lastPagingToken);
+            return lastPagingToken;
+          }
+          delivery.deliver(accountId, page.get(i), rendered.get(i).join());
+          lastPagingToken = page.get(i).getPagingToken();
+          operations++;
+        }
+
+        page = nextPage != null ? nextPage.join() : List.of();
+      }
+    } catch (CompletionException e) {
+      log.warn("Catch-up of {} interrupted, the stream will continue from {}: {}", accountId, lastPagingToken,
+        e.getCause().getMessage());
+    } catch (RuntimeException e) {
+      log.warn("Catch-up of {} interrupted, the stream will continue from {}: {}", accountId, lastPagingToken, e.getMessage());
+    }
+
+    log.info("Catch-up of {} finished: {} operations in {} pages, {} ms", accountId, operations, pages,
+      System.currentTimeMillis() - start);
+    return lastPagingToken;
+  }
+
+  @Override
+  public void close() {
+    fetcher.shutdownNow();
+    renderers.shutdownNow();
+  }
+
+  private List<OperationResponse> fetchPage(String accountId, String cursor) {
+    return horizon.call(server -> server.payments().forAccount(accountId)
+      .order(Order.ASC)
+      .cursor(cursor)
+      .limit(MAX_PAGE_SIZE)
+      .includeTransactions(true)
+      .execute()
+      .getRecords());
+  }
+}
@@ -0,0 +1,15 @@
+package com.sputnik.stellar.stream;
+
+public enum StreamState {
+  /** Opening the SSE stream. */
+  CONNECTING,
+  /** SSE stream open. */
+  STREAMING,
+  /** The stream stopped delivering operations that exist in Horizon. */
+  STALLED,
+  /** Waiting to reconnect after a failure. */
+  BACKOFF,
+  /** SSE keeps failing, operations are fetched polling the REST endpoint. */
+  POLLING,
+  STOPPED
+}
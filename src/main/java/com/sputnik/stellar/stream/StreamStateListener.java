@@ -0,0 +1,7 @@
+package com.sputnik.stellar.stream;
+
+@FunctionalInterface
+public interface StreamStateListener {
+
+  void stateChanged(String accountId, StreamState from, StreamState to);
+}
@@ -0,0 +1,391 @@
+package com.sputnik.stellar.stream;
+
+import com.sputnik.stellar.horizon.HorizonEndpoint;
+import com.sputnik.stellar.horizon.HorizonPool;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.requests.EventListener;
+import org.stellar.sdk.requests.PaymentsRequestBuilder;
+import org.stellar.sdk.requests.RequestBuilder.Order;
+import org.stellar.sdk.requests.SSEStream;
+import org.stellar.sdk.responses.operations.OperationResponse;
+
+/**
+ * Keeps the payments of an account flowing: watches the SSE stream, reconnects it from the last committed cursor with
+ * jittered exponential backoff, and falls back to polling the REST endpoint, with an adaptive interval, while the stream
+ * keeps failing. With a {@link CatchUp}, the operations after the committed cursor are delivered first, and the stream
+ * starts after the last of them.
+ * <p>
+ * A stream without events for the idle timeout is checked asking the REST endpoint for operations after the cursor: if
+ * there are any the stream is stalled and it's reconnected, otherwise the account is just quiet.
+ * <p>
+ * Every connection goes to the best endpoint of the {@link HorizonPool}: a failed or stalled stream counts against its
+ * endpoint, so the reconnection fails over to another one, and a stream whose endpoint becomes unusable is moved to the
+ * best one. The stream always continues from the committed cursor, whatever the endpoint.
+ * <p>
+ * The scheduler, shared by all the accounts, only times the checks: connections, REST checks and polls run on a thread of
+ * the account, and the operations are handled without holding the supervisor lock, so a slow account or Horizon request
+ * doesn't delay the others.
+ */
+@Slf4j
+public class StreamSupervisor implements AutoCloseable {
+
+  private static final int POLL_PAGE_SIZE = 200;
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+  private final HorizonPool horizon;
+  private final String accountId;
+  private final Supplier<String> committedCursor;
+  private final Consumer<OperationResponse> handler;
+  private final SupervisorPolicy policy;
+  private final ScheduledExecutorService scheduler;
+  private final StreamStateListener stateListener;
+  private final CatchUp catchUp;
+  private final ExecutorService worker;
+  /**
+   * Held while handling an operation, so they are handled one at a time and in order.
+   */
+  private final Object handling = new Object();
+
+  private StreamState state = StreamState.STOPPED;
+  private SSEStream<OperationResponse> stream;
+  private HorizonEndpoint endpoint;
+  private int generation;
+  private int consecutiveFailures;
+  private boolean checking;
+  private boolean closed;
+  private String caughtUpCursor;
+  private long pollIntervalMillis;
+  private long pollingSince;
+  private volatile long lastActivity;
+  private ScheduledFuture<?> watchdog;
+  private ScheduledFuture<?> pending;
+
+  /**
+   * @param committedCursor paging token of the last processed operation of the account, null to start from now
+   * @param handler         processes every received operation, in order
+   */
+  public StreamSupervisor(HorizonPool horizon, String accountId, Supplier<String> committedCursor, Consumer<OperationResponse> handler,
+    SupervisorPolicy policy, ScheduledExecutorService scheduler, StreamStateListener stateListener) {
+    this(horizon, accountId, committedCursor, handler, policy, scheduler, stateListener, null);
+  }
+
+  /**
+   * @param catchUp delivers the operations after the committed cursor on the thread of the account, before the stream
+   *                is opened, null to open it straight away
+   */
+  public StreamSupervisor(HorizonPool horizon, String accountId, Supplier<String> committedCursor, Consumer<OperationResponse> handler,
+    SupervisorPolicy policy, ScheduledExecutorService scheduler, StreamStateListener stateListener, CatchUp catchUp) {
+    this.horizon = horizon;
+    this.accountId = accountId;
+    this.committedCursor = committedCursor;
+    this.handler = handler;
+    this.policy = policy;
+    this.scheduler = scheduler;
+    this.stateListener = stateListener;
+    this.catchUp = catchUp;
+    // the thread ends while the account is quiet
+    this.worker = new ThreadPoolExecutor(0, 1, WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      runnable -> {
+        Thread thread = new Thread(runnable, "stream-" + accountId);
+        thread.setDaemon(true);
+        return thread;
+      });
+  }
+
+  public synchronized void start() {
+    submit(this::catchUpAndConnect);
+    long checkMillis = Math.max(1000, policy.idleTimeout().toMillis() / 2);
+    watchdog = scheduler.scheduleWithFixedDelay(this::checkStream, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized StreamState getState() {
+    return state;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (watchdog != null) {
+      watchdog.cancel(false);
+    }
+    cancelPending();
+    closeStream();
+    transition(StreamState.STOPPED);
+    worker.shutdown();
+  }
+
+  private synchronized boolean isClosed() {
+    return closed;
+  }
+
+  private void catchUpAndConnect() {
+    String cursor = committedCursor.get();
+    if (catchUp != null && cursor != null && !isClosed()) {
+      String lastCursor;
+      synchronized (handling) {
+        lastCursor = catchUp.catchUp(cursor, this::isClosed);
+      }
+      synchronized (this) {
+        caughtUpCursor = lastCursor;
+      }
+    }
+    connect();
+  }
+
+  private synchronized void connect() {
+    if (closed) {
+      return;
+    }
+
+    transition(StreamState.CONNECTING);
+    closeStream();
+    int streamGeneration = ++generation;
+    HorizonEndpoint best = horizon.best();
+    if (best != endpoint) {
+      log.info("[{}] Streaming from {}", accountId, best);
+      endpoint = best;
+    }
+    String cursor = caughtUpCursor != null ? caughtUpCursor : committedCursor.get();
+    caughtUpCursor = null;
+    PaymentsRequestBuilder request = endpoint.getServer().payments().forAccount(accountId).order(Order.ASC).includeTransactions(true)
+      .cursor(Optional.ofNullable(cursor).orElse("now"));
+    lastActivity = System.currentTimeMillis();
+    stream = request.stream(new EventListener<>() {
+      @Override
+      public void onEvent(OperationResponse operation) {
+        onStreamEvent(streamGeneration, operation);
+      }
+
+      @Override
+      public void onFailure(Optional<Throwable> error, Optional<Integer> responseCode) {
+        onStreamFailure(streamGeneration, error.orElse(null), responseCode.orElse(null));
+      }
+    });
+    transition(StreamState.STREAMING);
+  }
+
+  private void onStreamEvent(int streamGeneration, OperationResponse operation) {
+    synchronized (handling) {
+      synchronized (this) {
+        if (streamGeneration != generation || state != StreamState.STREAMING) {
+          // late event of a replaced stream, the new one starts from the committed cursor
+          return;
+        }
+        lastActivity = System.currentTimeMillis();
+        consecutiveFailures = 0;
+      }
+      handle(operation);
+    }
+  }
+
+  private synchronized void onStreamFailure(int streamGeneration, Throwable error, Integer responseCode) {
+    if (streamGeneration != generation || state != StreamState.STREAMING) {
+      return;
+    }
+
+    log.warn("[{}] Stream failure: {},{}", accountId, error, responseCode);
+    horizon.reportFailure(endpoint, "stream failure " + (error != null ? error : responseCode));
+    scheduleReconnect();
+  }
+
+  private synchronized void checkStream() {
+    if (state != StreamState.STREAMING || checking) {
+      return;
+    }
+    int streamGeneration = generation;
+    if (!horizon.isUsable(endpoint) && horizon.best() != endpoint) {
+      log.warn("[{}] Horizon {} is failing or behind, moving the stream to {}", accountId, endpoint, horizon.best());
+      checking = true;
+      submit(() -> moveStream(streamGeneration));
+    } else if (System.currentTimeMillis() - lastActivity >= policy.idleTimeout().toMillis()) {
+      checking = true;
+      submit(() -> checkIdle(streamGeneration));
+    }
+  }
+
+  private synchronized void moveStream(int streamGeneration) {
+    checking = false;
+    if (streamGeneration == generation && state == StreamState.STREAMING) {
+      connect();
+    }
+  }
+
+  private void checkIdle(int streamGeneration) {
+    List<OperationResponse> operations;
+    try {
+      operations = fetchAfterCursor(1);
+    } catch (RuntimeException e) {
+      log.warn("[{}] Error checking idle stream: {}", accountId, e.getMessage());
+      operations = null;
+    }
+
+    synchronized (this) {
+      checking = false;
+      if (operations == null || streamGeneration != generation || state != StreamState.STREAMING) {
+        return;
+      }
+      if (operations.isEmpty()) {
+        lastActivity = System.currentTimeMillis();
+      } else {
+        log.warn("[{}] Stream stalled, there are operations after the cursor not received in {}", accountId, policy.idleTimeout());
+        horizon.reportFailure(endpoint, "stream stalled");
+        transition(StreamState.STALLED);
+        scheduleReconnect();
+      }
+    }
+  }
+
+  private void scheduleReconnect() {
+    closeStream();
+    consecutiveFailures++;
+    if (consecutiveFailures >= policy.failuresBeforePolling()) {
+      startPolling();
+      return;
+    }
+
+    long delay = backoffMillis(consecutiveFailures);
+    log.info("[{}] Reconnecting stream in {} ms (failure {})", accountId, delay, consecutiveFailures);
+    transition(StreamState.BACKOFF);
+    cancelPending();
+    pending = scheduler.schedule(() -> submit(this::connect), delay, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Exponential backoff with equal jitter: half of the delay is fixed and the other half random.
+   */
+  private long backoffMillis(int failures) {
+    long exponential = policy.initialBackoff().toMillis() << Math.min(failures - 1, 20);
+    long delay = Math.min(policy.maxBackoff().toMillis(), exponential);
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  private void startPolling() {
+    log.warn("[{}] Stream failed {} times, polling every {} to {}", accountId, consecutiveFailures, policy.minPollInterval(),
+      policy.maxPollInterval());
+    transition(StreamState.POLLING);
+    // events of the failed stream arriving late are ignored
+    generation++;
+    pollIntervalMillis = policy.minPollInterval().toMillis();
+    pollingSince = System.currentTimeMillis();
+    cancelPending();
+    pending = scheduler.schedule(() -> submit(this::poll), 0, TimeUnit.MILLISECONDS);
+  }
+
+  private void poll() {
+    int pollGeneration;
+    synchronized (this) {
+      if (state != StreamState.POLLING) {
+        return;
+      }
+      pollGeneration = generation;
+    }
+
+    long nextPollMillis;
+    try {
+      List<OperationResponse> operations = fetchAfterCursor(POLL_PAGE_SIZE);
+      synchronized (handling) {
+        for (OperationResponse operation : operations) {
+          if (!isPolling(pollGeneration)) {
+            return;
+          }
+          handle(operation);
+        }
+      }
+      if (operations.size() == POLL_PAGE_SIZE) {
+        nextPollMillis = 0;
+      } else if (operations.isEmpty()) {
+        nextPollMillis = -1;
+      } else {
+        nextPollMillis = policy.minPollInterval().toMillis();
+      }
+    } catch (RuntimeException e) {
+      log.warn("[{}] Error polling payments: {}", accountId, e.getMessage());
+      nextPollMillis = policy.maxPollInterval().toMillis();
+    }
+
+    synchronized (this) {
+      if (!isPolling(pollGeneration)) {
+        return;
+      }
+      pollIntervalMillis = nextPollMillis >= 0
+        ? nextPollMillis
+        : Math.min(policy.maxPollInterval().toMillis(), Math.max(policy.minPollInterval().toMillis(), pollIntervalMillis * 2));
+      if (System.currentTimeMillis() - pollingSince >= policy.streamRetryInterval().toMillis()) {
+        log.info("[{}] Trying the stream again", accountId);
+        // a single failure goes back to polling
+        consecutiveFailures = policy.failuresBeforePolling() - 1;
+        connect();
+      } else {
+        pending = scheduler.schedule(() -> submit(this::poll), pollIntervalMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private synchronized boolean isPolling(int pollGeneration) {
+    return pollGeneration == generation && state == StreamState.POLLING;
+  }
+
+  private List<OperationResponse> fetchAfterCursor(int limit) {
+    String cursor = committedCursor.get();
+    if (cursor == null) {
+      return List.of();
+    }
+    return horizon.call(server -> server.payments().forAccount(accountId).order(Order.ASC).includeTransactions(true)
+      .cursor(cursor).limit(limit).execute().getRecords());
+  }
+
+  private void handle(OperationResponse operation) {
+    try {
+      handler.accept(operation);
+    } catch (Exception e) {
+      log.error("[{}] Error processing operation {}", accountId, operation.getId(), e);
+    }
+  }
+
+  private void submit(Runnable task) {
+    try {
+      worker.execute(task);
+    } catch (RejectedExecutionException e) {
+      // closed
+    }
+  }
+
+  private void closeStream() {
+    if (stream != null) {
+      stream.close();
+      stream = null;
+    }
+  }
+
+  private void cancelPending() {
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+  }
+
+  private void transition(StreamState newState) {
+    if (state != newState) {
+      StreamState oldState = state;
+      state = newState;
+      log.debug("[{}] Stream {} -> {}", accountId, oldState, newState);
+      try {
+        stateListener.stateChanged(accountId, oldState, newState);
+      } catch (Exception e) {
+        log.warn("Error calling stream state listener", e);
+      }
+    }
+  }
+}
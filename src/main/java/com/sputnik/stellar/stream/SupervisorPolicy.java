@@ -0,0 +1,19 @@
+package com.sputnik.stellar.stream;
+
+import java.time.Duration;
+
+/**
+ * @param idleTimeout            time without events after which the stream is checked against the REST endpoint
+ * @param initialBackoff         delay before the first reconnection, doubled on every consecutive failure
+ * @param maxBackoff             maximum delay between reconnections
+ * @param failuresBeforePolling  consecutive stream failures after which the REST endpoint is polled instead
+ * @param minPollInterval        poll interval while operations are being received
+ * @param maxPollInterval        poll interval reached, doubling it, while no operations are received
+ * @param streamRetryInterval    time polling before trying the stream again
+ */
+public record SupervisorPolicy(Duration idleTimeout, Duration initialBackoff, Duration maxBackoff, int failuresBeforePolling,
+                               Duration minPollInterval, Duration maxPollInterval, Duration streamRetryInterval) {
+
+  public static final SupervisorPolicy DEFAULT = new SupervisorPolicy(Duration.ofSeconds(60), Duration.ofSeconds(1),
+    Duration.ofSeconds(60), 5, Duration.ofSeconds(5), Duration.ofSeconds(60), Duration.ofMinutes(10));
+}
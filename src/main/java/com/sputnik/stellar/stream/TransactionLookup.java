@@ -0,0 +1,84 @@
+package com.sputnik.stellar.stream;
+
+import com.sputnik.stellar.horizon.HorizonPool;
+import com.sputnik.stellar.message.MemoResolver;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.stellar.sdk.Memo;
+import org.stellar.sdk.responses.TransactionResponse;
+
+/**
+ * Fetches the transactions of the operations received without them, keeping them for a while: the operations of the same
+ * transaction (a multi-operation payment, or the same operation notified to several accounts) share one request, and
+ * concurrent lookups of a transaction wait for the request in flight instead of sending another one.
+ */
+@Slf4j
+public class TransactionLookup implements MemoResolver {
+
+  private final HorizonPool horizon;
+  private final long ttlMillis;
+  private final int maxSize;
+  private final Map<String, CachedTransaction> transactions = new ConcurrentHashMap<>();
+
+  public TransactionLookup(HorizonPool horizon, Duration ttl, int maxSize) {
+    this.horizon = horizon;
+    this.ttlMillis = ttl.toMillis();
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public Memo memoOf(String transactionHash) {
+    TransactionResponse transaction = get(transactionHash);
+    return transaction != null ? transaction.getMemo() : null;
+  }
+
+  public TransactionResponse get(String transactionHash) {
+    long now = System.currentTimeMillis();
+    boolean[] created = new boolean[1];
+    CachedTransaction cached = transactions.compute(transactionHash, (hash, current) -> {
+      if (current != null && current.expiresAt() >= now) {
+        return current;
+      }
+      created[0] = true;
+      return new CachedTransaction(new CompletableFuture<>(), now + ttlMillis);
+    });
+
+    // only the thread that added the entry fetches the transaction, the others wait for it
+    if (created[0]) {
+      try {
+        cached.transaction().complete(horizon.call(server -> server.transactions().transaction(transactionHash)));
+      } catch (Exception e) {
+        log.warn("Error fetching transaction {}: {}", transactionHash, e.getMessage());
+        transactions.remove(transactionHash, cached);
+        cached.transaction().complete(null);
+      }
+      evictExpired(now);
+    }
+
+    try {
+      return cached.transaction().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private void evictExpired(long now) {
+    if (transactions.size() > maxSize) {
+      transactions.values().removeIf(cached -> cached.expiresAt() < now);
+      if (transactions.size() > maxSize) {
+        transactions.clear();
+      }
+    }
+  }
+
+  private record CachedTransaction(CompletableFuture<TransactionResponse> transaction, long expiresAt) {
+
+  }
+}
@@ -1,34 +1,54 @@
 package com.sputnik.stellar.util;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ConfigManager {
+/**
+ * Configuration values from a properties file, falling back to the environment variables.
+ * <p>
+ * Values are read from an immutable snapshot, replaced as a whole on every change, so reads take no lock while the
+ * configuration is being updated. With {@link #watch()} the file is reloaded when it is edited, and the listeners are
+ * notified of the values changed.
+ */
+public class ConfigManager implements AutoCloseable {
 
   protected static final String DEFAULT_CONFIG_FILE_NAME = "configuration.properties";
   private static final Logger log = LoggerFactory.getLogger(ConfigManager.class);
-  private final SortedMap<String, ConfigValue> config = new TreeMap<>();
+  private static final long RELOAD_DELAY_MILLIS = 200;
 
-  private final List<ConfigManagerListener> listeners = new ArrayList<>();
+  private final Map<String, String> environment = System.getenv();
+  private volatile Snapshot snapshot;
+
+  private final List<ConfigManagerListener> listeners = new CopyOnWriteArrayList<>();
 
   private final File file;
+  private WatchService watchService;
 
   public ConfigManager() {
     this("");
@@ -41,22 +61,20 @@ public class ConfigManager {
       file = new File(DEFAULT_CONFIG_FILE_NAME);
     }
 
-    loadConfiguration();
+    snapshot = Snapshot.of(loadConfiguration(Map.of()), environment);
   }
 
   public ConfigManager(File configFile) {
     file = configFile;
-    loadConfiguration();
+    snapshot = Snapshot.of(loadConfiguration(Map.of()), environment);
   }
 
   public String get(String key) {
-    return Optional.ofNullable(config.get(key))
-      .map(ConfigValue::value)
-      .orElse(System.getenv(key));
+    return snapshot.resolved().get(key);
   }
 
   public String getDescription(String key) {
-    return Optional.ofNullable(config.get(key))
+    return Optional.ofNullable(snapshot.values().get(key))
       .map(ConfigValue::description)
       .orElse(null);
   }
@@ -80,21 +98,22 @@ public class ConfigManager {
   }
 
   private void set(String key, String value, String description, boolean notifyListeners) {
-    String oldValue = Optional.ofNullable(config.get(key))
-      .map(ConfigValue::value)
-      .orElse(null);
-
-    ConfigValue newConfigValue = new ConfigValue(value, description);
+    String oldValue;
+    synchronized (this) {
+      SortedMap<String, ConfigValue> values = new TreeMap<>(snapshot.values());
+      oldValue = Optional.ofNullable(values.put(key, new ConfigValue(value, description)))
+        .map(ConfigValue::value)
+        .orElse(null);
+      publish(values);
+    }
 
-    config.put(key, newConfigValue);
-    saveConfiguration();
     if (notifyListeners) {
       notifyUpdateListeners(key, oldValue, value);
     }
   }
 
   public void register(String key, String defaultValue, String description) {
-    String existingValue = Optional.ofNullable(config.get(key))
+    String existingValue = Optional.ofNullable(snapshot.values().get(key))
       .map(ConfigValue::value)
       .orElse(null);
 
@@ -103,9 +122,17 @@ public class ConfigManager {
   }
 
   public void unregister(String key) {
-    if (config.containsKey(key)) {
-      ConfigValue removed = config.remove(key);
-      notifyUnregisterListeners(key, removed);
+    ConfigValue removed;
+    synchronized (this) {
+      SortedMap<String, ConfigValue> values = new TreeMap<>(snapshot.values());
+      removed = values.remove(key);
+      if (removed != null) {
+        publish(values);
+      }
+    }
+
+    if (removed != null) {
+      notifyUnregisterListeners(key, removed.value());
     }
   }
 
@@ -114,38 +141,149 @@ public class ConfigManager {
   }
 
   public List<String> getAllKeys() {
-    return new ArrayList<>(config.keySet());
+    return new ArrayList<>(snapshot.values().keySet());
   }
 
-  private void saveConfiguration() {
-    log.debug("Saving configuration to file: {}", file.getAbsolutePath());
-    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
-      Properties props = new Properties();
+  /**
+   * Reloads the configuration file whenever it changes, until closed.
+   */
+  public synchronized void watch() {
+    if (watchService != null) {
+      return;
+    }
+
+    Path path = file.getAbsoluteFile().toPath();
+    try {
+      watchService = path.getFileSystem().newWatchService();
+      path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (IOException e) {
+      log.warn("Error watching configuration file {}, it won't be reloaded: {}", path, e.getMessage());
+      watchService = null;
+      return;
+    }
+
+    WatchService service = watchService;
+    Thread watcher = new Thread(() -> watchLoop(service, path.getFileName()), "config-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
 
-      for (Map.Entry<String, ConfigManager.ConfigValue> entry : config.entrySet()) {
-        props.put(entry.getKey(), entry.getValue().value());
+  /**
+   * Reads the configuration file again, notifying the listeners of every value added, changed or removed.
+   */
+  public void reload() {
+    Map<String, String> updated = new HashMap<>();
+    Map<String, String> removed = new HashMap<>();
+    synchronized (this) {
+      SortedMap<String, ConfigValue> previous = snapshot.values();
+      SortedMap<String, ConfigValue> values = loadConfiguration(previous);
+      values.forEach((key, value) -> {
+        ConfigValue old = previous.get(key);
+        if (old == null || !Objects.equals(old.value(), value.value())) {
+          updated.put(key, old != null ? old.value() : null);
+        }
+      });
+      previous.forEach((key, value) -> {
+        if (!values.containsKey(key)) {
+          removed.put(key, value.value());
+        }
+      });
+      if (updated.isEmpty() && removed.isEmpty()) {
+        return;
       }
+      snapshot = Snapshot.of(values, environment);
+    }
 
-      props.store(writer, "");
+    log.info("Configuration reloaded, {} values changed and {} removed", updated.size(), removed.size());
+    updated.forEach((key, oldValue) -> notifyUpdateListeners(key, oldValue, get(key)));
+    removed.forEach(this::notifyUnregisterListeners);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        log.warn(e.getMessage());
+      }
+      watchService = null;
+    }
+  }
+
+  private void watchLoop(WatchService service, Path fileName) {
+    try {
+      while (true) {
+        WatchKey key = service.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+        }
+        if (!key.reset()) {
+          log.warn("Configuration directory no longer accessible, {} won't be reloaded", fileName);
+          return;
+        }
+
+        if (changed) {
+          // editors may write the file in several steps, wait for them to finish
+          TimeUnit.MILLISECONDS.sleep(RELOAD_DELAY_MILLIS);
+          for (WatchKey pending = service.poll(); pending != null; pending = service.poll()) {
+            pending.pollEvents();
+            pending.reset();
+          }
+          reload();
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      log.debug("Configuration watcher closed");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void publish(SortedMap<String, ConfigValue> values) {
+    snapshot = Snapshot.of(values, environment);
+    saveConfiguration(values);
+  }
+
+  private void saveConfiguration(SortedMap<String, ConfigValue> values) {
+    log.debug("Saving configuration to file: {}", file.getAbsolutePath());
+    Path path = file.getAbsoluteFile().toPath();
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+        Properties props = new Properties();
+
+        for (Map.Entry<String, ConfigManager.ConfigValue> entry : values.entrySet()) {
+          props.put(entry.getKey(), entry.getValue().value());
+        }
+
+        props.store(writer, "");
+      }
+      Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
     } catch (IOException e) {
       log.warn(e.getMessage());
     }
   }
 
-  private void loadConfiguration() {
+  private SortedMap<String, ConfigValue> loadConfiguration(Map<String, ConfigValue> previous) {
     log.info("Loading configuration from file: {}", file.getAbsolutePath());
+    SortedMap<String, ConfigValue> values = new TreeMap<>();
     if (file.exists()) {
-      try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+      try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
         Properties props = new Properties();
         props.load(reader);
         for (String key : props.stringPropertyNames()) {
-          config.put(key, new ConfigValue(props.getProperty(key), null));
+          String description = Optional.ofNullable(previous.get(key)).map(ConfigValue::description).orElse(null);
+          values.put(key, new ConfigValue(props.getProperty(key), description));
         }
         log.info("Loaded {} values", props.size());
       } catch (IOException e) {
         log.warn(e.getMessage());
+        return new TreeMap<>(previous);
       }
     }
+    return values;
   }
 
   public void registerListener(ConfigManagerListener listener) {
@@ -162,10 +300,10 @@ public class ConfigManager {
     }
   }
 
-  private void notifyUnregisterListeners(String key, ConfigValue existingValue) {
+  private void notifyUnregisterListeners(String key, String existingValue) {
     for (ConfigManagerListener listener : listeners) {
       try {
-        listener.unregisteredKey(key, existingValue.value);
+        listener.unregisteredKey(key, existingValue);
       } catch (Exception e) {
         log.warn("Error calling listener: {}.", listener, e);
       }
@@ -190,4 +328,25 @@ public class ConfigManager {
   record ConfigValue(String value, String description) {
 
   }
-}
\ No newline at end of file
+
+  /**
+   * @param values   the values of the file
+   * @param resolved the environment variables overridden by the values of the file
+   */
+  private record Snapshot(SortedMap<String, ConfigValue> values, Map<String, String> resolved) {
+
+    static Snapshot of(SortedMap<String, ConfigValue> values, Map<String, String> environment) {
+      return new Snapshot(Collections.unmodifiableSortedMap(values), resolve(values, environment));
+    }
+
+    private static Map<String, String> resolve(SortedMap<String, ConfigValue> values, Map<String, String> environment) {
+      Map<String, String> resolved = new HashMap<>(environment);
+      values.forEach((key, value) -> {
+        if (value.value() != null) {
+          resolved.put(key, value.value());
+        }
+      });
+      return resolved;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.sputnik.stellar.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Parsing of the configuration values holding several items.
+ */
+public final class ConfigValues {
+
+  private ConfigValues() {
+  }
+
+  /**
+   * @param values comma separated list, null if not configured
+   * @return the trimmed, non-empty values in the configured order, empty if there are none
+   */
+  public static Set<String> parseSet(String values) {
+    if (values == null || values.isBlank()) {
+      return Set.of();
+    }
+
+    return Arrays.stream(values.split(","))
+      .map(String::trim)
+      .filter(value -> !value.isEmpty())
+      .collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+}
@@ -0,0 +1,116 @@
+package com.sputnik.stellar.util;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hashed timing wheel: timers are kept in a ring of buckets, one per tick, and every tick only the timers of its bucket
+ * are checked. Timers further than one turn of the wheel wait in their bucket counting the remaining turns, so
+ * scheduling and cancelling are O(1) whatever the number of timers, at the cost of firing up to one tick late.
+ * <p>
+ * Expired timers are run by the given executor, not by the wheel thread.
+ */
+@Slf4j
+public class TimerWheel implements AutoCloseable {
+
+  // far enough, and still far from overflowing the milliseconds
+  private static final long MAX_DEADLINE_SECONDS = Long.MAX_VALUE / 4000;
+
+  private final long tickMillis;
+  private final List<List<Timeout>> buckets;
+  private final int mask;
+  private final Executor executor;
+  private final long startMillis;
+  private final ScheduledExecutorService ticker;
+  private long currentTick;
+
+  /**
+   * @param wheelSize number of buckets, rounded up to a power of two
+   */
+  public TimerWheel(Duration tick, int wheelSize, Executor executor) {
+    this.tickMillis = tick.toMillis();
+    int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+    this.buckets = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      buckets.add(new ArrayList<>());
+    }
+    this.mask = size - 1;
+    this.executor = executor;
+    this.startMillis = System.currentTimeMillis();
+    this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "timer-wheel");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized Timeout schedule(Instant deadline, Runnable task) {
+    Timeout timeout = new Timeout(task);
+    long deadlineMillis = deadline.getEpochSecond() < MAX_DEADLINE_SECONDS ? deadline.toEpochMilli() : MAX_DEADLINE_SECONDS * 1000;
+    long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+    if (deadlineTick < currentTick) {
+      executor.execute(task);
+      return timeout;
+    }
+
+    timeout.remainingTurns = (deadlineTick - currentTick) / buckets.size();
+    buckets.get((int) (deadlineTick & mask)).add(timeout);
+    return timeout;
+  }
+
+  @Override
+  public void close() {
+    ticker.shutdownNow();
+  }
+
+  private synchronized void advance() {
+    long targetTick = (System.currentTimeMillis() - startMillis) / tickMillis;
+    while (currentTick <= targetTick) {
+      Iterator<Timeout> timeouts = buckets.get((int) (currentTick & mask)).iterator();
+      while (timeouts.hasNext()) {
+        Timeout timeout = timeouts.next();
+        if (timeout.cancelled) {
+          timeouts.remove();
+        } else if (timeout.remainingTurns <= 0) {
+          timeouts.remove();
+          run(timeout.task);
+        } else {
+          timeout.remainingTurns--;
+        }
+      }
+      currentTick++;
+    }
+  }
+
+  private void run(Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RuntimeException e) {
+      log.warn("Error running timer task: {}", e.getMessage());
+    }
+  }
+
+  public static final class Timeout {
+
+    private final Runnable task;
+    private volatile boolean cancelled;
+    private long remainingTurns;
+
+    private Timeout(Runnable task) {
+      this.task = task;
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+}
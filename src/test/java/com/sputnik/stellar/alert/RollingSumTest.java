@@ -0,0 +1,73 @@
+package com.sputnik.stellar.alert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class RollingSumTest {
+
+  @Test
+  void expiresBucketsLeavingTheWindow() {
+    // 1 s window of 100 ms buckets
+    RollingSum sum = new RollingSum(1000, 10);
+    sum.add(0, 5);
+    sum.add(150, 7);
+    assertEquals(12, sum.total());
+
+    sum.add(1050, 1);
+    assertEquals(8, sum.total());
+    assertEquals(2, sum.count());
+
+    sum.add(2500, 1);
+    assertEquals(1, sum.total());
+    assertEquals(1, sum.count());
+  }
+
+  @Test
+  void ignoresPaymentsOlderThanTheWindow() {
+    RollingSum sum = new RollingSum(1000, 10);
+    sum.add(2000, 5);
+    sum.add(1500, 2);
+    sum.add(500, 3);
+
+    assertEquals(7, sum.total());
+    assertEquals(2, sum.count());
+  }
+
+  @Test
+  void recomputesSaturatedTotalWhenBucketsExpire() {
+    RollingSum sum = new RollingSum(1000, 10);
+    sum.add(0, Long.MAX_VALUE - 5);
+    sum.add(500, 100);
+    assertEquals(Long.MAX_VALUE, sum.total());
+
+    sum.add(1000, 7);
+
+    assertEquals(107, sum.total());
+  }
+
+  @Test
+  void readsWhatItWrites() throws IOException {
+    RollingSum sum = new RollingSum(1000, 10);
+    sum.add(0, 5);
+    sum.add(300, 7);
+    sum.setAlerted(true);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    sum.writeTo(new DataOutputStream(bytes));
+
+    RollingSum read = new RollingSum(1000, 10);
+    read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(12, read.total());
+    assertEquals(2, read.count());
+    assertTrue(read.isAlerted());
+    read.add(1050, 1);
+    assertEquals(8, read.total());
+  }
+}
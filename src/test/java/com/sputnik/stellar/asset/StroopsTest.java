@@ -0,0 +1,46 @@
+package com.sputnik.stellar.asset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class StroopsTest {
+
+  @Test
+  void parsesUpToSevenDecimals() {
+    assertEquals(10_000_000, Stroops.parse("1"));
+    assertEquals(125_000_000, Stroops.parse("12.5"));
+    assertEquals(1, Stroops.parse("0.0000001"));
+    assertEquals(5_000_000, Stroops.parse(".5"));
+    assertEquals(50_000_000, Stroops.parse("5."));
+    assertEquals(0, Stroops.parse("0.0000000"));
+    assertEquals(Long.MAX_VALUE, Stroops.parse("922337203685.4775807"));
+  }
+
+  @Test
+  void rejectsInvalidAmounts() {
+    for (String amount : new String[] {"", ".", "-1", "1.2.3", "1e5", " 1", "1.00000001", "922337203685.4775808",
+      "922337203686", "99999999999999999999"}) {
+      assertEquals(Stroops.NONE, Stroops.parseOrNone(amount), amount);
+    }
+    assertEquals(Stroops.NONE, Stroops.parseOrNone(null));
+    assertThrows(NumberFormatException.class, () -> Stroops.parse("1,5"));
+  }
+
+  @Test
+  void formatsWithSevenDecimals() {
+    assertEquals("0.0000000", Stroops.format(0));
+    assertEquals("0.0000001", Stroops.format(1));
+    assertEquals("12.5000000", Stroops.format(125_000_000));
+    assertEquals("922337203685.4775807", Stroops.format(Long.MAX_VALUE));
+    assertEquals(123_456_789_012L, Stroops.parse(Stroops.format(123_456_789_012L)));
+  }
+
+  @Test
+  void saturatesTheSum() {
+    assertEquals(3, Stroops.add(1, 2));
+    assertEquals(Long.MAX_VALUE, Stroops.add(Long.MAX_VALUE - 1, 2));
+    assertEquals(Long.MAX_VALUE, Stroops.add(Long.MAX_VALUE, Long.MAX_VALUE));
+  }
+}
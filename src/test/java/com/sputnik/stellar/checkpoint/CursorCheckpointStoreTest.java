@@ -0,0 +1,122 @@
+package com.sputnik.stellar.checkpoint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CursorCheckpointStoreTest {
+
+  private static final CheckpointPolicy POLICY = new CheckpointPolicy(1000, 60_000, false, 1000, 10);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void reloadsCursorsAndSeenOperations() {
+    Path journal = directory.resolve("cursors");
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      store.record("A", 1, "t1");
+      store.record("A", 2, "t2");
+      store.record("B", 3, "t3");
+    }
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertEquals("t2", store.get("A"));
+      assertEquals("t3", store.get("B"));
+      assertTrue(store.isDelivered("A", 1));
+      assertTrue(store.isDelivered("B", 3));
+      assertFalse(store.isDelivered("A", 3));
+    }
+  }
+
+  @Test
+  void truncatesIncompleteJournalLine() throws IOException {
+    Path journal = directory.resolve("cursors");
+    Files.writeString(journal, "A=1\nB=2\nA=3", StandardCharsets.UTF_8);
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertEquals("1", store.get("A"));
+      assertEquals("A=1\nB=2\n", Files.readString(journal, StandardCharsets.UTF_8));
+      store.record("A", "4");
+    }
+
+    assertEquals("A=1\nB=2\nA=4\n", Files.readString(journal, StandardCharsets.UTF_8));
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertEquals("4", store.get("A"));
+    }
+  }
+
+  @Test
+  void compactsJournalToOneLinePerAccount() throws IOException {
+    Path journal = directory.resolve("cursors");
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, new CheckpointPolicy(1000, 60_000, false, 2, 10))) {
+      store.record("B", "b");
+      store.flush();
+      for (int i = 1; i <= 4; i++) {
+        store.record("A", "t" + i);
+        store.flush();
+      }
+
+      assertEquals(List.of("B=b", "A=t4"), Files.readAllLines(journal, StandardCharsets.UTF_8));
+      assertFalse(Files.exists(directory.resolve("cursors.tmp")));
+    }
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertEquals("t4", store.get("A"));
+      assertEquals("b", store.get("B"));
+    }
+  }
+
+  @Test
+  void dropsIncompleteSeenOperationsAppend() throws IOException {
+    Path journal = directory.resolve("cursors");
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      store.record("A", 1, "t1");
+    }
+    // an append of three ids interrupted after the first one
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve("cursors.seen"),
+      StandardOpenOption.APPEND))) {
+      out.writeUTF("A");
+      out.writeInt(3);
+      out.writeLong(2);
+    }
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertTrue(store.isDelivered("A", 1));
+      store.record("A", 5, "t5");
+    }
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertTrue(store.isDelivered("A", 1));
+      assertTrue(store.isDelivered("A", 5));
+      assertEquals("t5", store.get("A"));
+    }
+  }
+
+  @Test
+  void remembersOnlyTheLastSeenOperations() {
+    Path journal = directory.resolve("cursors");
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      for (int id = 1; id <= 25; id++) {
+        store.record("A", id, "t" + id);
+        store.flush();
+      }
+    }
+
+    try (CursorCheckpointStore store = new CursorCheckpointStore(journal, POLICY)) {
+      assertFalse(store.isDelivered("A", 15));
+      assertTrue(store.isDelivered("A", 16));
+      assertTrue(store.isDelivered("A", 25));
+    }
+  }
+}
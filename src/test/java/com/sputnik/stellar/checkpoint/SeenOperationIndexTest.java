@@ -0,0 +1,89 @@
+package com.sputnik.stellar.checkpoint;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class SeenOperationIndexTest {
+
+  @Test
+  void evictsTheOldestId() {
+    SeenOperationIndex index = new SeenOperationIndex(3);
+    for (long id = 1; id <= 4; id++) {
+      assertTrue(index.add(id));
+    }
+
+    assertFalse(index.contains(1));
+    assertTrue(index.contains(2));
+    assertTrue(index.contains(4));
+    assertFalse(index.add(3));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void findsTheIdsLeftAfterManyEvictions() {
+    SeenOperationIndex index = new SeenOperationIndex(100);
+    for (long id = 1; id <= 10_000; id++) {
+      index.add(id * 4096);
+    }
+
+    for (long id = 1; id <= 10_000; id++) {
+      assertEquals(id > 9_900, index.contains(id * 4096), "id " + id);
+    }
+  }
+
+  @Test
+  void ignoresTheEmptySlotMarker() {
+    SeenOperationIndex index = new SeenOperationIndex(2);
+
+    assertFalse(index.add(0));
+    assertFalse(index.contains(0));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void takesTheIdsAddedSinceLastSaved() {
+    SeenOperationIndex index = new SeenOperationIndex(3);
+    index.add(1);
+    index.add(2);
+    assertArrayEquals(new long[] {1, 2}, index.takeUnsaved());
+
+    for (long id = 3; id <= 7; id++) {
+      index.add(id);
+    }
+    // only the ones still in the index
+    assertArrayEquals(new long[] {5, 6, 7}, index.takeUnsaved());
+    assertArrayEquals(new long[0], index.takeUnsaved());
+  }
+
+  @Test
+  void readsWhatItWrites() throws IOException {
+    SeenOperationIndex index = new SeenOperationIndex(3);
+    for (long id = 1; id <= 5; id++) {
+      index.add(id);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    index.writeTo(new DataOutputStream(bytes));
+    assertArrayEquals(new long[0], index.takeUnsaved());
+
+    SeenOperationIndex read = new SeenOperationIndex(3);
+    read.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(3, read.size());
+    assertFalse(read.contains(2));
+    assertTrue(read.contains(3));
+    assertTrue(read.contains(5));
+    assertArrayEquals(new long[0], read.takeUnsaved());
+    // the oldest one is still evicted first
+    read.add(6);
+    assertFalse(read.contains(3));
+  }
+}
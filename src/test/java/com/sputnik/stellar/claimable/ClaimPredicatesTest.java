@@ -0,0 +1,114 @@
+package com.sputnik.stellar.claimable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.stellar.sdk.Predicate;
+
+class ClaimPredicatesTest {
+
+  private static final Instant CREATED = Instant.ofEpochSecond(1_000_000);
+
+  @Test
+  void compilesAbsoluteBeforeAsHalfOpenWindow() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.AbsBefore(2_000_000), CREATED);
+
+    assertTrue(windows.contains(1_999_999));
+    assertFalse(windows.contains(2_000_000));
+    assertEquals(Instant.ofEpochSecond(2_000_000), windows.nextChange(CREATED));
+    assertNull(windows.nextChange(Instant.ofEpochSecond(2_000_000)));
+  }
+
+  @Test
+  void compilesRelativeBeforeFromTheCreation() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.RelBefore(100), CREATED);
+
+    assertTrue(windows.contains(CREATED.plusSeconds(99)));
+    assertFalse(windows.contains(CREATED.plusSeconds(100)));
+  }
+
+  @Test
+  void doesNotOverflowFarRelativeBefore() {
+    assertEquals(ClaimWindows.ALWAYS, ClaimPredicates.compile(new Predicate.RelBefore(Long.MAX_VALUE), CREATED));
+  }
+
+  @Test
+  void compilesNotBeforeAsAfter() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.Not(new Predicate.AbsBefore(2_000_000)), CREATED);
+
+    assertFalse(windows.contains(1_999_999));
+    assertTrue(windows.contains(2_000_000));
+    assertTrue(windows.contains(Long.MAX_VALUE - 1));
+    assertEquals(Instant.ofEpochSecond(2_000_000), windows.nextChange(CREATED));
+    assertNull(windows.nextChange(Instant.ofEpochSecond(2_000_000)));
+  }
+
+  @Test
+  void compilesAndAsIntersection() {
+    ClaimWindows windows = ClaimPredicates.compile(between(1_500_000, 2_000_000), CREATED);
+
+    assertFalse(windows.contains(1_499_999));
+    assertTrue(windows.contains(1_500_000));
+    assertTrue(windows.contains(1_999_999));
+    assertFalse(windows.contains(2_000_000));
+    assertEquals(Instant.ofEpochSecond(1_500_000), windows.nextChange(CREATED));
+    assertEquals(Instant.ofEpochSecond(2_000_000), windows.nextChange(Instant.ofEpochSecond(1_500_000)));
+    assertEquals("Between " + Instant.ofEpochSecond(1_500_000) + " and " + Instant.ofEpochSecond(2_000_000),
+      windows.toString());
+  }
+
+  @Test
+  void compilesOrAsUnion() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.Or(between(1_100_000, 1_200_000),
+      between(1_500_000, 2_000_000)), CREATED);
+
+    assertTrue(windows.contains(1_150_000));
+    assertFalse(windows.contains(1_300_000));
+    assertTrue(windows.contains(1_600_000));
+    assertEquals(Instant.ofEpochSecond(1_500_000), windows.nextChange(Instant.ofEpochSecond(1_200_000)));
+  }
+
+  @Test
+  void mergesAdjacentWindows() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.Or(new Predicate.AbsBefore(1_500_000),
+      between(1_500_000, 2_000_000)), CREATED);
+
+    assertEquals(ClaimWindows.before(2_000_000), windows);
+  }
+
+  @Test
+  void compilesContradictionAsNever() {
+    ClaimWindows windows = ClaimPredicates.compile(new Predicate.And(new Predicate.AbsBefore(1_500_000),
+      new Predicate.Not(new Predicate.AbsBefore(2_000_000))), CREATED);
+
+    assertTrue(windows.isNever());
+    assertEquals(ClaimWindows.NEVER, ClaimPredicates.compile(new Predicate.Not(new Predicate.Unconditional()), CREATED));
+    assertNull(windows.nextChange(CREATED));
+  }
+
+  @Test
+  void negatesTwiceToTheSameWindows() {
+    ClaimWindows windows = ClaimPredicates.compile(between(1_500_000, 2_000_000), CREATED);
+
+    assertEquals(windows, windows.not().not());
+    assertEquals(ClaimWindows.ALWAYS, windows.or(windows.not()));
+    assertEquals(ClaimWindows.NEVER, windows.and(windows.not()));
+  }
+
+  @Test
+  void evaluatesRelativePredicatesForBalancesCreatedNow() {
+    Instant now = Instant.ofEpochSecond(3_000_000);
+
+    assertTrue(ClaimPredicates.evaluate(new Predicate.RelBefore(1), now));
+    assertFalse(ClaimPredicates.evaluate(new Predicate.AbsBefore(now.getEpochSecond()), now));
+    assertTrue(ClaimPredicates.evaluate(new Predicate.Unconditional(), now));
+  }
+
+  private static Predicate between(long start, long end) {
+    return new Predicate.And(new Predicate.Not(new Predicate.AbsBefore(start)), new Predicate.AbsBefore(end));
+  }
+}
@@ -0,0 +1,45 @@
+package com.sputnik.stellar.message.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class MessageTemplateTest {
+
+  @Test
+  void replacesPlaceholdersByName() {
+    MessageTemplate template = MessageTemplate.compile("{from} sent {amount} to {to}, {from}", "amount", "from", "to");
+
+    assertEquals("A sent 5 to B, A", template.render("5", "A", "B"));
+    assertEquals("C sent 6 to D, C", template.render("6", "C", "D"));
+  }
+
+  @Test
+  void keepsEscapedBraces() {
+    MessageTemplate template = MessageTemplate.compile("{{amount} is {amount}}", "amount");
+
+    assertEquals("{amount} is 5}", template.render("5"));
+  }
+
+  @Test
+  void rendersTextWithoutPlaceholders() {
+    assertEquals("", MessageTemplate.compile("").render());
+    assertEquals("Payment received", MessageTemplate.compile("Payment received", "amount").render("5"));
+  }
+
+  @Test
+  void appendsToTheBuilder() {
+    StringBuilder builder = new StringBuilder("Subject: ");
+
+    MessageTemplate.compile("{amount} XLM", "amount").renderTo(builder, "5");
+
+    assertEquals("Subject: 5 XLM", builder.toString());
+  }
+
+  @Test
+  void rejectsUnknownAndUnclosedPlaceholders() {
+    assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("{amount} {asset}", "amount"));
+    assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("{amount", "amount"));
+  }
+}
@@ -0,0 +1,118 @@
+package com.sputnik.stellar.outbox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sputnik.stellar.message.Message;
+import com.sputnik.stellar.message.Priority;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutboxTest {
+
+  private static final int SEGMENT_BYTES = 4096;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void recoversUndeliveredEntriesAfterReopening() {
+    Message first = message("first", 1L, Priority.HIGH);
+    Message second = message("second", 2L, Priority.LOW);
+    Message third = new Message("digest", "body");
+    OutboxEntry firstEntry;
+    OutboxEntry secondEntry;
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 2)) {
+      firstEntry = outbox.append(first);
+      secondEntry = outbox.append(second);
+      outbox.append(third);
+      outbox.markDelivered(firstEntry, 0);
+      outbox.markDelivered(firstEntry, 1);
+      outbox.markDelivered(secondEntry, 0);
+    }
+
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 2)) {
+      List<OutboxEntry> pending = List.copyOf(outbox.pending());
+      assertEquals(List.of(second, third), pending.stream().map(OutboxEntry::message).toList());
+      assertEquals(secondEntry.position(), pending.get(0).position());
+      assertTrue(outbox.isDelivered(pending.get(0), 0));
+      assertFalse(outbox.isDelivered(pending.get(0), 1));
+    }
+  }
+
+  @Test
+  void discardsEntryWithWrongChecksum() throws IOException {
+    OutboxEntry torn;
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 1)) {
+      outbox.append(message("first", 1L, Priority.NORMAL));
+      torn = outbox.append(message("second", 2L, Priority.NORMAL));
+    }
+    // a payload byte not written before the crash
+    overwrite(torn.offset() + 12, (byte) 0x7f);
+
+    assertRecoveredAndAppendable("first");
+  }
+
+  @Test
+  void ignoresEntryWithoutLength() throws IOException {
+    OutboxEntry torn;
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 1)) {
+      outbox.append(message("first", 1L, Priority.NORMAL));
+      torn = outbox.append(message("second", 2L, Priority.NORMAL));
+    }
+    // the length is written last, so an interrupted append leaves it at zero
+    overwrite(torn.offset(), (byte) 0, (byte) 0, (byte) 0, (byte) 0);
+
+    assertRecoveredAndAppendable("first");
+  }
+
+  @Test
+  void deletesSegmentsDeliveredToAllSinks() throws IOException {
+    try (Outbox outbox = new Outbox(directory, 64, false, 2)) {
+      for (int i = 0; i < 5; i++) {
+        OutboxEntry entry = outbox.append(message("message " + i, (long) i, Priority.NORMAL));
+        outbox.markDelivered(entry, 0);
+        outbox.markDelivered(entry, 1);
+      }
+      assertEquals(0, outbox.pendingCount());
+      // only the segment being written is kept
+      assertEquals(1, segmentFiles());
+    }
+  }
+
+  private void assertRecoveredAndAppendable(String expectedSubject) {
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 1)) {
+      assertEquals(List.of(expectedSubject), outbox.pending().stream().map(entry -> entry.message().subject()).toList());
+      outbox.append(message("third", 3L, Priority.NORMAL));
+    }
+    try (Outbox outbox = new Outbox(directory, SEGMENT_BYTES, false, 1)) {
+      assertEquals(List.of(expectedSubject, "third"), outbox.pending().stream().map(entry -> entry.message().subject()).toList());
+    }
+  }
+
+  private void overwrite(int offset, byte... bytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(directory.resolve("segment-0.log"), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(bytes), offset);
+    }
+  }
+
+  private long segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private static Message message(String subject, Long operationId, Priority priority) {
+    return new Message(subject, "body of " + subject).withOperation(operationId, "payment", "XLM", "1.5000000")
+      .withPriority(priority);
+  }
+}
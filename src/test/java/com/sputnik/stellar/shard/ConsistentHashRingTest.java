@@ -0,0 +1,66 @@
+package com.sputnik.stellar.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+  private static final int KEYS = 30_000;
+  private static final long HASH_OF_ACCOUNT = -8860141625224113609L;
+
+  @Test
+  void assignsTheSameOwnerWhateverTheMembersOrder() {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"));
+    ConsistentHashRing reordered = new ConsistentHashRing(List.of("c", "a", "b"));
+
+    for (int i = 0; i < KEYS; i++) {
+      assertEquals(ring.ownerOf(key(i)), reordered.ownerOf(key(i)));
+    }
+  }
+
+  @Test
+  void balancesTheKeysBetweenMembers() {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"));
+    Map<String, Integer> owned = new HashMap<>();
+    for (int i = 0; i < KEYS; i++) {
+      owned.merge(ring.ownerOf(key(i)), 1, Integer::sum);
+    }
+
+    assertEquals(3, owned.size());
+    owned.forEach((member, keys) -> assertTrue(keys > KEYS / 4 && keys < KEYS / 2, member + " owns " + keys));
+  }
+
+  @Test
+  void onlyMovesTheKeysOfTheMemberLeaving() {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c"));
+    ConsistentHashRing withoutC = new ConsistentHashRing(List.of("a", "b"));
+
+    for (int i = 0; i < KEYS; i++) {
+      String owner = ring.ownerOf(key(i));
+      if (!owner.equals("c")) {
+        assertEquals(owner, withoutC.ownerOf(key(i)));
+      }
+    }
+  }
+
+  @Test
+  void hashesTheSameOnEveryInstance() {
+    // instances running different versions must agree on the owners
+    assertEquals(HASH_OF_ACCOUNT, ConsistentHashRing.hash("GAACCOUNT"));
+  }
+
+  @Test
+  void needsAMember() {
+    assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of()));
+  }
+
+  private static String key(int i) {
+    return "G" + i;
+  }
+}
@@ -0,0 +1,103 @@
+package com.sputnik.stellar.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LeaseDirectoryTest {
+
+  private static final Duration TTL = Duration.ofMillis(300);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void acquiresFreeLeaseOnlyOnce() throws IOException {
+    LeaseDirectory first = new LeaseDirectory(directory, "first", TTL);
+    LeaseDirectory second = new LeaseDirectory(directory, "second", TTL);
+
+    LeaseDirectory.Lease lease = first.tryAcquire("account");
+    assertNotNull(lease);
+    assertEquals("first", lease.owner());
+    assertNull(lease.cursor());
+    assertNull(second.tryAcquire("account"));
+    assertNotNull(first.tryAcquire("account"));
+  }
+
+  @Test
+  void takesOverExpiredLeaseWithItsCursor() throws IOException, InterruptedException {
+    LeaseDirectory first = new LeaseDirectory(directory, "first", TTL);
+    LeaseDirectory second = new LeaseDirectory(directory, "second", TTL);
+    LeaseDirectory third = new LeaseDirectory(directory, "third", TTL);
+    first.tryAcquire("account");
+    assertTrue(first.renew("account", "cursor-1"));
+
+    Thread.sleep(TTL.toMillis() + 50);
+    LeaseDirectory.Lease lease = second.tryAcquire("account");
+
+    assertNotNull(lease);
+    assertEquals("second", lease.owner());
+    assertEquals("cursor-1", lease.cursor());
+    assertNull(third.tryAcquire("account"));
+    assertFalse(first.renew("account", "cursor-2"));
+    assertEquals(lease, second.read("account"));
+    // neither the moved aside lease nor the hard linked temporary file are left behind
+    assertEquals(List.of("account"), leaseFiles());
+  }
+
+  @Test
+  void releasedLeaseIsFreeWithItsCursor() throws IOException {
+    LeaseDirectory first = new LeaseDirectory(directory, "first", TTL);
+    LeaseDirectory second = new LeaseDirectory(directory, "second", TTL);
+    first.tryAcquire("account");
+    first.release("account", "cursor-1");
+
+    LeaseDirectory.Lease lease = second.tryAcquire("account");
+
+    assertNotNull(lease);
+    assertEquals("cursor-1", lease.cursor());
+  }
+
+  @Test
+  void doesNotRenewLeaseCloseToItsExpiry() throws IOException, InterruptedException {
+    LeaseDirectory first = new LeaseDirectory(directory, "first", TTL);
+    first.tryAcquire("account");
+
+    Thread.sleep(TTL.toMillis() - TTL.toMillis() / 8);
+
+    assertFalse(first.renew("account", "cursor-1"));
+    first.release("account", "cursor-1");
+    assertNull(first.read("account").cursor());
+  }
+
+  @Test
+  void listsInstancesWithLiveHeartbeat() throws IOException {
+    LeaseDirectory first = new LeaseDirectory(directory, "first", TTL);
+    LeaseDirectory second = new LeaseDirectory(directory, "second", TTL);
+    first.heartbeat();
+    second.heartbeat();
+    assertEquals(Set.of("first", "second"), first.liveInstances());
+
+    second.close();
+
+    assertEquals(Set.of("first"), first.liveInstances());
+  }
+
+  private List<String> leaseFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory.resolve("leases"))) {
+      return files.map(file -> file.getFileName().toString()).toList();
+    }
+  }
+}
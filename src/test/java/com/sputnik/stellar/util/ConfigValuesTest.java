@@ -0,0 +1,22 @@
+package com.sputnik.stellar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ConfigValuesTest {
+
+  @Test
+  void parsesTrimmedValuesInOrder() {
+    assertEquals(List.of("USDC", "XLM", "EURT"), List.copyOf(ConfigValues.parseSet(" USDC, XLM,,EURT ,USDC")));
+  }
+
+  @Test
+  void parsesMissingValuesAsEmpty() {
+    assertEquals(Set.of(), ConfigValues.parseSet(null));
+    assertEquals(Set.of(), ConfigValues.parseSet(" "));
+    assertEquals(Set.of(), ConfigValues.parseSet(" , "));
+  }
+}
@@ -0,0 +1,74 @@
+package com.sputnik.stellar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+  private static final Duration TICK = Duration.ofMillis(10);
+
+  @Test
+  void runsTimerNotBeforeItsDeadline() throws InterruptedException {
+    try (TimerWheel wheel = new TimerWheel(TICK, 64, Runnable::run)) {
+      assertRunsNotBefore(wheel, Instant.now().plusMillis(50));
+    }
+  }
+
+  @Test
+  void runsTimerSeveralTurnsAway() throws InterruptedException {
+    // 4 buckets of 10 ms, so 200 ms are 5 turns of the wheel
+    try (TimerWheel wheel = new TimerWheel(TICK, 4, Runnable::run)) {
+      assertRunsNotBefore(wheel, Instant.now().plusMillis(200));
+    }
+  }
+
+  @Test
+  void runsPastTimerRightAway() {
+    try (TimerWheel wheel = new TimerWheel(TICK, 64, Runnable::run)) {
+      AtomicLong runs = new AtomicLong();
+      wheel.schedule(Instant.now().minusSeconds(1), runs::incrementAndGet);
+
+      assertEquals(1, runs.get());
+    }
+  }
+
+  @Test
+  void doesNotRunCancelledTimer() throws InterruptedException {
+    try (TimerWheel wheel = new TimerWheel(TICK, 64, Runnable::run)) {
+      CountDownLatch run = new CountDownLatch(1);
+      wheel.schedule(Instant.now().plusMillis(30), run::countDown).cancel();
+
+      assertFalse(run.await(200, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  void acceptsFarDeadline() throws InterruptedException {
+    try (TimerWheel wheel = new TimerWheel(TICK, 64, Runnable::run)) {
+      CountDownLatch run = new CountDownLatch(1);
+      wheel.schedule(Instant.MAX, run::countDown);
+
+      assertFalse(run.await(100, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  private static void assertRunsNotBefore(TimerWheel wheel, Instant deadline) throws InterruptedException {
+    CountDownLatch run = new CountDownLatch(1);
+    AtomicLong runMillis = new AtomicLong();
+    wheel.schedule(deadline, () -> {
+      runMillis.set(System.currentTimeMillis());
+      run.countDown();
+    });
+
+    assertTrue(run.await(5, TimeUnit.SECONDS));
+    assertTrue(runMillis.get() >= deadline.toEpochMilli(), "run " + (deadline.toEpochMilli() - runMillis.get()) + " ms early");
+  }
+}